@@ -0,0 +1,70 @@
+package midterms;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link Polynomial#addTo(Polynomial)} and {@link Polynomial#decreaseBy(Polynomial)} scale with
+ * the number of terms, from 10 up to 10^6, apart from {@link PolynomialBenchmark} so its other operations
+ * don't run at 10^6 too. With the linear merge the time per term stays flat across the degrees.
+ * The sparse Polynomials have one exponent in a hundred, those of the second between those of the first,
+ * so the merge interleaves them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PolynomialAdditionBenchmark {
+    private static final int SPARSE_STRIDE = 100;
+
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    private int degree;
+
+    @Param({"dense", "sparse"})
+    private String form;
+
+    private Polynomial first;
+    private Polynomial second;
+
+
+    @Setup
+    public void setUp() {
+        int stride = form.equals("dense") ? 1 : Math.min(SPARSE_STRIDE, degree);
+        first = polynomial(degree, stride);
+        second = polynomial(degree - stride / 2, stride);
+    }
+
+
+    @Benchmark
+    public Polynomial addTo() {
+        return first.addTo(second);
+    }
+
+    @Benchmark
+    public Polynomial decreaseBy() {
+        return first.decreaseBy(second);
+    }
+
+
+    // Builds a Polynomial of the degree with an exponent every stride, down to the lowest one not below 0
+    private static Polynomial polynomial(int degree, int stride) {
+        ArrayList<Term> terms = new ArrayList<>(degree / stride + 1);
+        for (int exponent = degree; exponent >= 0; exponent -= stride)
+            terms.add(new Term(exponent % 7 + 1, 'x', exponent));
+        return new Polynomial(terms);
+    }
+}
@@ -0,0 +1,94 @@
+package midterms;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operations of the polynomial core across degrees from 10 to 10^5, for dense Polynomials
+ * (every exponent up to the degree) and sparse ones (one exponent in a hundred).
+ * Run it through the jmh profile of the pom, which adds the GC profiler for the allocation rate
+ * and writes the results as JSON. {@link PolynomialAdditionBenchmark} measures the addition and the subtraction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PolynomialBenchmark {
+    private static final int SPARSE_STRIDE = 100;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int degree;
+
+    @Param({"dense", "sparse"})
+    private String form;
+
+    private Polynomial first;
+    private Polynomial second;
+    private Polynomial divisor;
+    private String text;
+
+
+    @Setup
+    public void setUp() {
+        int stride = form.equals("dense") ? 1 : Math.min(SPARSE_STRIDE, degree);
+        first = polynomial(degree, stride, 1);
+        second = polynomial(degree, stride, 2);
+        divisor = divisor(degree / 2, stride);
+        text = first.toString();
+    }
+
+
+    @Benchmark
+    public double evaluate() {
+        return first.evaluate(0.999);
+    }
+
+    @Benchmark
+    public Polynomial multiplyBy() {
+        return first.multiplyBy(second);
+    }
+
+    @Benchmark
+    public PolynomialDivisionResult divideBy() {
+        return first.divideBy(divisor);
+    }
+
+    @Benchmark
+    public Polynomial constructPolynomialFromString() {
+        return PolynomialParser.parse(text); // Not through the parse cache, which would only measure its hits
+    }
+
+
+    // Builds a Polynomial of the degree with an exponent every stride, down to the constant
+    private static Polynomial polynomial(int degree, int stride, int seed) {
+        ArrayList<Term> terms = new ArrayList<>(degree / stride + 1);
+        for (int exponent = degree; exponent >= 0; exponent -= stride)
+            terms.add(new Term((exponent * seed) % 7 + 1, 'x', exponent));
+        return new Polynomial(terms);
+    }
+
+    // Builds a monic divisor whose lower coefficients add up to less than 1 in absolute value, so the quotient
+    // coefficients stay bounded by those of the dividend and the division measures work rather than overflow
+    private static Polynomial divisor(int degree, int stride) {
+        int lowerTermCount = degree / stride;
+        ArrayList<Term> terms = new ArrayList<>(lowerTermCount + 1);
+        terms.add(new Term(1, 'x', degree));
+        for (int exponent = degree - stride; exponent >= 0; exponent -= stride)
+            terms.add(new Term(((exponent * 3) % 7 - 3) / (4.0 * lowerTermCount), 'x', exponent));
+        return new Polynomial(terms);
+    }
+}
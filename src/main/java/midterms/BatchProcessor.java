@@ -0,0 +1,178 @@
+package midterms;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Runs Polynomial operations read one per line, without menus, prompts or ANSI colors.
+ * Each line is one of:
+ * <pre>
+ *     EVAL 5x^2 + 3x + 1 @ 2
+ *     ADD  p ; q
+ *     SUB  p ; q
+ *     MUL  p ; q
+ *     DIV  p ; q
+ *     STATS
+ * </pre>
+ * Keywords are case-insensitive, blank lines and lines starting with # are skipped.
+ * Every operation writes exactly one line: the value, the resulting Polynomial, "quotient ; remainder"
+ * for a division, or "ERROR " followed by the reason, so the output lines up with the operations.
+ * STATS writes the latencies of {@link OperationStats} so far and the counters of the {@link ParseCache}
+ * and the {@link EvaluationCache}, on one line.
+ * Operations aren't added to the history.
+ */
+public class BatchProcessor {
+    private long operationCount;
+    private long errorCount;
+
+
+    /**
+     * Reads operations until the end of the input and writes one result line per operation.
+     * The output isn't flushed, so wrap it in a large buffer.
+     *
+     * @param input the operations, one per line
+     * @param output where the results are written
+     * @throws IOException if reading or writing fails
+     */
+    public void process(BufferedReader input, Writer output) throws IOException {
+        String line;
+        while ((line = input.readLine()) != null) {
+            String result = processLine(line);
+            if (result != null) {
+                output.write(result);
+                output.write('\n');
+            }
+        }
+    }
+
+
+    /**
+     * Runs the operation of a single line.
+     *
+     * @param line the operation
+     * @return the result line, or null if the line is blank or a comment
+     */
+    String processLine(String line) {
+        int start = 0;
+        int end = line.length();
+        while (start < end && Character.isWhitespace(line.charAt(start)))
+            start++;
+        if (start == end || line.charAt(start) == '#')
+            return null;
+
+        operationCount++;
+        try {
+            int keywordEnd = start;
+            while (keywordEnd < end && !Character.isWhitespace(line.charAt(keywordEnd)))
+                keywordEnd++;
+            String keyword = line.substring(start, keywordEnd).toUpperCase(Locale.ROOT);
+
+            return switch (keyword) {
+                case "EVAL" -> evaluate(line, keywordEnd);
+                case "ADD", "SUB", "MUL", "DIV" -> operate(keyword, line, keywordEnd);
+                case "STATS" -> stats();
+                default -> throw new IllegalArgumentException("Unknown operation " + keyword + ". ");
+            };
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            errorCount++;
+            return "ERROR " + e.getMessage();
+        }
+    }
+
+
+    // EVAL p @ x
+    private String evaluate(String line, int from) {
+        int separator = line.indexOf('@', from);
+        if (separator < 0)
+            throw new IllegalArgumentException("Expected @ before the value. ");
+
+        Polynomial polynomial = parse(line.substring(from, separator));
+        double value = Double.parseDouble(line.substring(separator + 1).trim());
+
+        long start = System.nanoTime();
+        double result = EvaluationCache.getShared().evaluate(polynomial, value);
+        OperationStats.record("evaluate", OperationStats.ARITHMETIC, start);
+        return String.valueOf(result);
+    }
+
+
+    // ADD, SUB, MUL or DIV p ; q
+    private String operate(String keyword, String line, int from) {
+        int separator = line.indexOf(';', from);
+        if (separator < 0)
+            throw new IllegalArgumentException("Expected ; between the Polynomials. ");
+
+        Polynomial first = parse(line.substring(from, separator));
+        Polynomial second = parse(line.substring(separator + 1));
+
+        long start = System.nanoTime();
+        Polynomial result = switch (keyword) {
+            case "ADD" -> first.addTo(second);
+            case "SUB" -> first.decreaseBy(second);
+            case "MUL" -> first.multiplyBy(second);
+            default -> first.divideBy(second);
+        };
+        OperationStats.record(switch (keyword) {
+            case "ADD" -> "add";
+            case "SUB" -> "subtract";
+            case "MUL" -> "multiply";
+            default -> "divide";
+        }, OperationStats.ARITHMETIC, start);
+
+        if (result instanceof PolynomialDivisionResult division) {
+            String quotient = division.getQuotient() == null ? "0" : division.getQuotient().toString();
+            return quotient + " ; " + division.getRemainder();
+        }
+        return result.toString();
+    }
+
+    // The latencies and the counters of the caches, the evaluation cache only if it is enabled
+    private static String stats() {
+        String stats = OperationStats.getSummary() + "; " + ParseCache.getShared().getSummary();
+        EvaluationCache evaluationCache = EvaluationCache.getShared();
+        return evaluationCache.getCapacity() > 0 ? stats + "; " + evaluationCache.getSummary() : stats;
+    }
+
+    private static Polynomial parse(String polynomial) {
+        long start = System.nanoTime();
+        Polynomial parsed = ParseCache.getShared().parse(polynomial);
+        OperationStats.record(OperationStats.POLYNOMIAL, OperationStats.PARSE, start);
+        return parsed;
+    }
+
+
+    /**
+     * Gets operation count.
+     *
+     * @return the number of operations processed, including the failed ones
+     */
+    public long getOperationCount() {
+        return operationCount;
+    }
+
+
+    /**
+     * Gets error count.
+     *
+     * @return the number of operations that failed
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+
+    /**
+     * Summarizes the throughput of the processed operations.
+     *
+     * @param elapsedNanos the time the processing took
+     * @return the number of operations and errors, the elapsed time and the operations per minute
+     */
+    public String getSummary(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        double perMinute = seconds > 0 ? operationCount / seconds * 60 : 0;
+        return String.format(Locale.ROOT, "Processed %d operations (%d errors) in %.3f s, %.0f operations/minute",
+                operationCount, errorCount, seconds, perMinute);
+    }
+}
@@ -0,0 +1,344 @@
+package midterms;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the values of Polynomials, keyed on the {@link Polynomial#getFingerprint() fingerprint} of the
+ * Polynomial and the raw bits of the value of its literal, for callers that evaluate the same Polynomials at the
+ * same values again and again.
+ * <p>
+ * The entries are kept in primitive arrays with open addressing and linear probing, split in segments behind their
+ * own lock. A full segment evicts with the clock algorithm: a hand sweeps the slots, sparing once the entries read
+ * since it last passed. Nothing is allocated on a hit or a miss, except the first time a Polynomial is counted.
+ * Two different Polynomials with the same 64-bit fingerprint would share their values, which is unlikely enough
+ * to be ignored.
+ * <p>
+ * The hits and misses are counted for the whole cache and for each Polynomial, the first
+ * {@value #MAX_TRACKED_POLYNOMIALS} Polynomials seen are counted on their own.
+ * {@link #getShared()} is the cache of the program, disabled unless a capacity is set with
+ * {@link #setSharedCapacity(int)}.
+ */
+public class EvaluationCache {
+    /** The number of Polynomials whose hits and misses are counted on their own. */
+    public static final int MAX_TRACKED_POLYNOMIALS = 1024;
+
+    private static final int SEGMENT_COUNT = 16;
+    private static final int MINIMUM_SEGMENT_CAPACITY = 16; // Smaller caches have a single segment, to stay exact
+    private static final long GOLDEN_RATIO = 0x9e3779b97f4a7c15L;
+
+    private static volatile EvaluationCache shared = new EvaluationCache(0);
+
+    private final int capacity;
+    private final Segment[] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructs an empty EvaluationCache.
+     *
+     * @param capacity the number of values kept at most, 0 to evaluate every time
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public EvaluationCache(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Evaluation cache capacity must be at least 0. ");
+
+        this.capacity = capacity;
+        int segmentCount = capacity >= SEGMENT_COUNT * MINIMUM_SEGMENT_CAPACITY ? SEGMENT_COUNT : 1;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) // Spread the remainder so the capacities add up exactly
+            segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0));
+    }
+
+
+    /**
+     * Gets the cache of the program.
+     *
+     * @return the shared cache
+     */
+    public static EvaluationCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Replaces the cache of the program by an empty one.
+     *
+     * @param capacity the number of values kept at most, 0 to evaluate every time
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public static void setSharedCapacity(int capacity) {
+        shared = new EvaluationCache(capacity);
+    }
+
+
+    /**
+     * Evaluates the Polynomial, or gets its value from the cache if it was evaluated at the same value before.
+     *
+     * @param polynomial the Polynomial
+     * @param value      the value of the literal
+     * @return the same result as {@link Polynomial#evaluate(double)}
+     */
+    public double evaluate(Polynomial polynomial, double value) {
+        if (capacity == 0) {
+            misses.incrementAndGet();
+            return polynomial.evaluate(value);
+        }
+
+        long fingerprint = polynomial.getFingerprint();
+        long bits = Double.doubleToRawLongBits(value);
+        long hash = hash(fingerprint, bits);
+        Segment segment = segments[segments.length == 1 ? 0 : (int) (hash >>> 32) & (segments.length - 1)];
+
+        int slot;
+        double result = 0;
+        synchronized (segment) {
+            slot = segment.indexOf(fingerprint, bits, hash);
+            if (slot >= 0) {
+                segment.referenced[slot] = true;
+                result = segment.results[slot];
+            }
+        }
+        if (slot >= 0) {
+            count(fingerprint, true);
+            return result;
+        }
+
+        result = polynomial.evaluate(value);
+        synchronized (segment) {
+            segment.put(fingerprint, bits, hash, result);
+        }
+        count(fingerprint, false);
+        return result;
+    }
+
+
+    /**
+     * Gets capacity.
+     *
+     * @return the number of values kept at most
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of values in the cache.
+     *
+     * @return the size
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments)
+            synchronized (segment) {
+                size += segment.size;
+            }
+        return size;
+    }
+
+    /**
+     * Gets hit count.
+     *
+     * @return the number of values found in the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets miss count.
+     *
+     * @return the number of evaluations
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets eviction count.
+     *
+     * @return the number of values evicted to make room for others
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+
+    /**
+     * Gets the hits of a Polynomial.
+     *
+     * @param polynomial the Polynomial, or any with the same terms
+     * @return the number of its values found in the cache, 0 if it isn't counted on its own
+     */
+    public long getHitCount(Polynomial polynomial) {
+        Counter counter = counters.get(polynomial.getFingerprint());
+        return counter == null ? 0 : counter.hits.get();
+    }
+
+    /**
+     * Gets the misses of a Polynomial.
+     *
+     * @param polynomial the Polynomial, or any with the same terms
+     * @return the number of its evaluations, 0 if it isn't counted on its own
+     */
+    public long getMissCount(Polynomial polynomial) {
+        Counter counter = counters.get(polynomial.getFingerprint());
+        return counter == null ? 0 : counter.misses.get();
+    }
+
+    /**
+     * Gets the hit rate of a Polynomial.
+     *
+     * @param polynomial the Polynomial, or any with the same terms
+     * @return the share of its values found in the cache, from 0 to 1, 0 if it isn't counted on its own
+     */
+    public double getHitRate(Polynomial polynomial) {
+        long hitCount = getHitCount(polynomial);
+        long total = hitCount + getMissCount(polynomial);
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+
+    /**
+     * Gets the counters on one line, for the stats.
+     *
+     * @return the size, capacity, hits, misses and evictions
+     */
+    public String getSummary() {
+        return "evaluation cache size=" + size() + "/" + capacity + " hits=" + getHitCount() + " misses="
+                + getMissCount() + " evictions=" + getEvictionCount();
+    }
+
+
+    /**
+     * Empties the cache. The counters are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments)
+            synchronized (segment) {
+                segment.clear();
+            }
+    }
+
+
+    // Counts a hit or a miss, for the cache and for the Polynomial if it is tracked
+    private void count(long fingerprint, boolean hit) {
+        (hit ? hits : misses).incrementAndGet();
+
+        Counter counter = counters.get(fingerprint);
+        if (counter == null) {
+            if (counters.size() >= MAX_TRACKED_POLYNOMIALS)
+                return;
+            counter = counters.computeIfAbsent(fingerprint, key -> new Counter());
+        }
+        (hit ? counter.hits : counter.misses).incrementAndGet();
+    }
+
+    // Mixes the fingerprint and the value, the high half picks the segment and the low half the slot
+    private static long hash(long fingerprint, long bits) {
+        long hash = fingerprint ^ (bits * GOLDEN_RATIO);
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        return hash ^ (hash >>> 33);
+    }
+
+
+    // The hits and misses of a Polynomial
+    private static final class Counter {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+    }
+
+
+    // An open addressing table with linear probing, guarded by its own monitor.
+    // A fingerprint is never 0, so 0 marks an empty slot.
+    private final class Segment {
+        final long[] fingerprints;
+        final long[] values;
+        final double[] results;
+        final boolean[] referenced;
+        private final int mask;
+        private final int segmentCapacity;
+        int size;
+        private int hand;
+
+        Segment(int segmentCapacity) {
+            this.segmentCapacity = segmentCapacity;
+            int slots = Integer.highestOneBit(Math.max(1, segmentCapacity) * 2 - 1) * 2; // at most half full
+            this.fingerprints = new long[slots];
+            this.values = new long[slots];
+            this.results = new double[slots];
+            this.referenced = new boolean[slots];
+            this.mask = slots - 1;
+        }
+
+        // The slot of the entry, or -1 if it isn't in the table
+        int indexOf(long fingerprint, long bits, long hash) {
+            for (int slot = (int) hash & mask; fingerprints[slot] != 0; slot = (slot + 1) & mask)
+                if (fingerprints[slot] == fingerprint && values[slot] == bits)
+                    return slot;
+            return -1;
+        }
+
+        void put(long fingerprint, long bits, long hash, double result) {
+            if (indexOf(fingerprint, bits, hash) >= 0) // Another thread put it meanwhile
+                return;
+            if (size == segmentCapacity)
+                evict();
+
+            int slot = (int) hash & mask;
+            while (fingerprints[slot] != 0)
+                slot = (slot + 1) & mask;
+            fingerprints[slot] = fingerprint;
+            values[slot] = bits;
+            results[slot] = result;
+            referenced[slot] = false; // Only a hit earns a second chance
+            size++;
+        }
+
+        // Advances the hand to the first entry not read since the hand last passed, and removes it
+        private void evict() {
+            while (true) {
+                int slot = hand;
+                hand = (hand + 1) & mask;
+                if (fingerprints[slot] == 0)
+                    continue;
+                if (referenced[slot]) {
+                    referenced[slot] = false;
+                    continue;
+                }
+                remove(slot);
+                evictions.incrementAndGet();
+                return;
+            }
+        }
+
+        // Removes the entry and shifts back the entries after it that could no longer be found
+        private void remove(int slot) {
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (fingerprints[next] == 0)
+                    break;
+                int home = (int) hash(fingerprints[next], values[next]) & mask;
+                if (((next - home) & mask) >= ((next - slot) & mask)) { // The gap is between its home and its slot
+                    fingerprints[slot] = fingerprints[next];
+                    values[slot] = values[next];
+                    results[slot] = results[next];
+                    referenced[slot] = referenced[next];
+                    slot = next;
+                }
+            }
+            fingerprints[slot] = 0;
+            size--;
+        }
+
+        void clear() {
+            Arrays.fill(fingerprints, 0);
+            size = 0;
+        }
+    }
+}
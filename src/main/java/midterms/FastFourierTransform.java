@@ -0,0 +1,196 @@
+package midterms;
+
+/**
+ * Convolution of real coefficient arrays through a split-radix fast Fourier transform.
+ * Both real operands are packed in a single complex sequence (the first as the real part,
+ * the second as the imaginary part), so a product costs one forward and one inverse transform.
+ * <p>
+ * The transform works in floating point, so its result is only used when it can be rounded back to the
+ * exact product: see {@link #convolveExactly(double[], double[])}.
+ */
+final class FastFourierTransform {
+    private static final double UNIT_ROUNDOFF = 0x1.0p-53;
+    private static final double EXACT_INTEGER_LIMIT = 0x1.0p53;
+
+    private final int size;
+    private final double[] cosines; // cos(2πk / size)
+    private final double[] sines;   // -sin(2πk / size), the forward direction
+
+    // Precomputes the twiddle factors of a transform of the given size, a power of two
+    private FastFourierTransform(int size) {
+        this.size = size;
+        this.cosines = new double[size];
+        this.sines = new double[size];
+        for (int k = 0; k < size; k++) {
+            double angle = 2 * Math.PI * k / size;
+            cosines[k] = Math.cos(angle);
+            sines[k] = -Math.sin(angle);
+        }
+    }
+
+
+    /**
+     * Multiplies two coefficient arrays of integers with the transform.
+     * Returns null when the result can't be trusted, in which case the caller should use an exact method:
+     * when a coefficient is not an integer, when the exact product has coefficients too large to be represented,
+     * or when the error bound of the transform doesn't allow rounding to the exact integers.
+     *
+     * @param a the coefficients of the first Polynomial, indexed by exponent
+     * @param b the coefficients of the second Polynomial, indexed by exponent
+     * @return the coefficients of the product, or null if the transform can't compute it exactly
+     */
+    static double[] convolveExactly(double[] a, double[] b) {
+        int resultLength = a.length + b.length - 1;
+        int size = Integer.highestOneBit(resultLength);
+        if (size < resultLength)
+            size <<= 1;
+
+        if (!isSafeToRound(a, b, size))
+            return null;
+
+        double[] result = new FastFourierTransform(size).convolve(a, b, resultLength);
+        for (int i = 0; i < resultLength; i++)
+            result[i] = Math.rint(result[i]) + 0.0; // + 0.0 turns -0.0 into 0.0
+
+        // Cross-check the two ends, which are single exact products
+        if (result[0] != a[0] * b[0] || result[resultLength - 1] != a[a.length - 1] * b[b.length - 1])
+            return null;
+
+        return result;
+    }
+
+
+    // Checks the inputs are integers, the exact result fits in a double, and the transform error stays below 1/2.
+    // The error bound follows Percival's analysis of FFT multiplication:
+    // |error| <= ||a|| ||b|| (3 log2(size) + 3) (u + twiddle error), with the twiddle error taken as 2u.
+    private static boolean isSafeToRound(double[] a, double[] b, int size) {
+        double aMaximum = 0;
+        double bMaximum = 0;
+        double aNormSquared = 0;
+        double bNormSquared = 0;
+
+        for (double coefficient : a) {
+            if (coefficient != Math.rint(coefficient))
+                return false;
+            aMaximum = Math.max(aMaximum, Math.abs(coefficient));
+            aNormSquared += coefficient * coefficient;
+        }
+        for (double coefficient : b) {
+            if (coefficient != Math.rint(coefficient))
+                return false;
+            bMaximum = Math.max(bMaximum, Math.abs(coefficient));
+            bNormSquared += coefficient * coefficient;
+        }
+
+        if (aMaximum * bMaximum * Math.min(a.length, b.length) >= EXACT_INTEGER_LIMIT)
+            return false;
+
+        int levels = Integer.numberOfTrailingZeros(size);
+        double errorBound = Math.sqrt(aNormSquared * bNormSquared) * (3 * levels + 3) * (3 * UNIT_ROUNDOFF);
+        return errorBound < 0.5;
+    }
+
+
+    // Returns the first resultLength coefficients of the product of a and b
+    private double[] convolve(double[] a, double[] b, int resultLength) {
+        double[] real = new double[size];
+        double[] imaginary = new double[size];
+        double[] transformedReal = new double[size];
+        double[] transformedImaginary = new double[size];
+
+        System.arraycopy(a, 0, real, 0, a.length);
+        System.arraycopy(b, 0, imaginary, 0, b.length);
+        transform(real, imaginary, 0, 1, transformedReal, transformedImaginary, 0, size);
+
+        // Unpack the spectra of a and b, A = (Z[k] + conj(Z[-k])) / 2 and B = (Z[k] - conj(Z[-k])) / 2i,
+        // then store the conjugate of their product, to run the inverse transform as a forward one
+        for (int k = 0; k < size; k++) {
+            int mirror = (size - k) & (size - 1);
+            double zReal = transformedReal[k];
+            double zImaginary = transformedImaginary[k];
+            double mirrorReal = transformedReal[mirror];
+            double mirrorImaginary = transformedImaginary[mirror];
+
+            double aReal = (zReal + mirrorReal) / 2;
+            double aImaginary = (zImaginary - mirrorImaginary) / 2;
+            double bReal = (zImaginary + mirrorImaginary) / 2;
+            double bImaginary = (mirrorReal - zReal) / 2;
+
+            real[k] = aReal * bReal - aImaginary * bImaginary;
+            imaginary[k] = -(aReal * bImaginary + aImaginary * bReal);
+        }
+
+        transform(real, imaginary, 0, 1, transformedReal, transformedImaginary, 0, size);
+
+        // The product is real, so only the real part of the conjugated result is needed
+        double[] result = new double[resultLength];
+        for (int i = 0; i < resultLength; i++)
+            result[i] = transformedReal[i] / size;
+        return result;
+    }
+
+
+    // Split-radix decimation in time: the transform of length n is built from one transform of length n/2
+    // over the even inputs and two transforms of length n/4 over the inputs at 1 and 3 (mod 4).
+    // Reads n inputs from the given stride and writes n contiguous outputs.
+    private void transform(double[] real, double[] imaginary, int from, int stride,
+                           double[] outReal, double[] outImaginary, int outFrom, int n) {
+        if (n == 1) {
+            outReal[outFrom] = real[from];
+            outImaginary[outFrom] = imaginary[from];
+            return;
+        }
+        if (n == 2) {
+            double secondReal = real[from + stride];
+            double secondImaginary = imaginary[from + stride];
+            outReal[outFrom] = real[from] + secondReal;
+            outImaginary[outFrom] = imaginary[from] + secondImaginary;
+            outReal[outFrom + 1] = real[from] - secondReal;
+            outImaginary[outFrom + 1] = imaginary[from] - secondImaginary;
+            return;
+        }
+
+        int half = n / 2;
+        int quarter = n / 4;
+        transform(real, imaginary, from, 2 * stride, outReal, outImaginary, outFrom, half);
+        transform(real, imaginary, from + stride, 4 * stride, outReal, outImaginary, outFrom + half, quarter);
+        transform(real, imaginary, from + 3 * stride, 4 * stride, outReal, outImaginary, outFrom + half + quarter, quarter);
+
+        int step = size / n;
+        for (int k = 0; k < quarter; k++) {
+            double cosine1 = cosines[k * step];
+            double sine1 = sines[k * step];
+            double cosine3 = cosines[3 * k * step];
+            double sine3 = sines[3 * k * step];
+
+            // w^k Z[k] and w^3k Z'[k]
+            int z = outFrom + half + k;
+            int zPrime = z + quarter;
+            double zReal = outReal[z] * cosine1 - outImaginary[z] * sine1;
+            double zImaginary = outReal[z] * sine1 + outImaginary[z] * cosine1;
+            double zPrimeReal = outReal[zPrime] * cosine3 - outImaginary[zPrime] * sine3;
+            double zPrimeImaginary = outReal[zPrime] * sine3 + outImaginary[zPrime] * cosine3;
+
+            double sumReal = zReal + zPrimeReal;
+            double sumImaginary = zImaginary + zPrimeImaginary;
+            double differenceReal = zReal - zPrimeReal;
+            double differenceImaginary = zImaginary - zPrimeImaginary;
+
+            int u = outFrom + k;
+            int uQuarter = u + quarter;
+            double uReal = outReal[u];
+            double uImaginary = outImaginary[u];
+            double uQuarterReal = outReal[uQuarter];
+            double uQuarterImaginary = outImaginary[uQuarter];
+
+            outReal[u] = uReal + sumReal;
+            outImaginary[u] = uImaginary + sumImaginary;
+            outReal[z] = uReal - sumReal;
+            outImaginary[z] = uImaginary - sumImaginary;
+            outReal[uQuarter] = uQuarterReal + differenceImaginary; // U - i(Z - Z')
+            outImaginary[uQuarter] = uQuarterImaginary - differenceReal;
+            outReal[zPrime] = uQuarterReal - differenceImaginary;   // U + i(Z - Z')
+            outImaginary[zPrime] = uQuarterImaginary + differenceReal;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package midterms;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+/**
+ * An evaluation kernel for a Polynomial based on Horner's scheme.
+ * The coefficients are laid out once in descending exponent order, so that evaluating
+ * a degree-n Polynomial costs n multiplications and n additions instead of n calls to {@link Math#pow}.
+ * <p>
+ * Sparse gaps (i.e., 3x^40 + 1) are skipped with a single integer power per gap. The terms with negative
+ * exponents are evaluated apart, by Horner's scheme in the reciprocal of the literal, so that a power of
+ * one sign can't overflow the other (i.e., x^200 + x^-200 at 10).
+ * <p>
+ * Error bound: with u = 2^-53 and k the number of rounded operations of both paths,
+ * the value returned by {@link #evaluate(double)} differs from the per-term sum of {@link Term#evaluate(double)}
+ * by at most {@code γ(k) · Σ|c_i|·|x|^e_i}, where {@code γ(k) = k·u / (1 - k·u)}.
+ * See {@link #errorBound(double)}.
+ */
+final class HornerEvaluator {
+    private static final double UNIT_ROUNDOFF = 0x1.0p-53;
+
+    /**
+     * Whether the Vector API can be used for batch evaluation.
+     * It is an incubator module, so it is only present when the JVM runs with {@code --add-modules jdk.incubator.vector}.
+     */
+    static final boolean VECTOR_API_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private static final int BLOCK_SIZE = 512; // values per block of the scalar batch loop, small enough to stay in L1
+
+    private final double[] coefficients; // in descending exponent order
+    private final int[] gaps;            // gaps[i] = exponent of term (i - 1) - exponent of term i; gaps[0] is unused
+    private final int lowestExponent;
+    private final int split;             // the index of the first negative exponent, the size if there is none
+    private final int nonNegativeShift;  // the lowest non-negative exponent, factored out of the terms before split
+    private final int negativeShift;     // minus the highest negative exponent, factored out of the terms from split
+    private final boolean dense;         // true if there is no gap larger than 1
+    private final int roundedOperations;
+
+
+    /**
+     * Constructs a kernel from the terms of a Polynomial. The terms may come in any order.
+     *
+     * @param terms the terms of the Polynomial
+     * @return the kernel
+     */
+    static HornerEvaluator fromTerms(List<Term> terms) {
+        Term[] sorted = terms.toArray(new Term[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(b.getExponent(), a.getExponent()));
+
+        // Collect the coefficients, combining terms that share an exponent
+        double[] coefficients = new double[sorted.length];
+        int[] exponents = new int[sorted.length];
+        int size = 0;
+        for (Term term : sorted) {
+            if (size > 0 && exponents[size - 1] == term.getExponent())
+                coefficients[size - 1] += term.getCoefficient();
+            else {
+                coefficients[size] = term.getCoefficient();
+                exponents[size++] = term.getExponent();
+            }
+        }
+
+        return new HornerEvaluator(coefficients, exponents, size);
+    }
+
+
+    /**
+     * Constructs a kernel from coefficients indexed by exponent.
+     * Zero coefficients between the lowest and the highest exponent are kept, so the kernel has no gaps.
+     *
+     * @param coefficients the coefficients, indexed by exponent
+     * @param degree the highest exponent with a non-zero coefficient
+     * @return the kernel
+     */
+    static HornerEvaluator fromCoefficients(double[] coefficients, int degree) {
+        int lowest = 0;
+        while (lowest < degree && coefficients[lowest] == 0)
+            lowest++;
+
+        int size = degree - lowest + 1;
+        double[] descending = new double[size];
+        int[] exponents = new int[size];
+        for (int i = 0; i < size; i++) {
+            descending[i] = coefficients[degree - i];
+            exponents[i] = degree - i;
+        }
+
+        return new HornerEvaluator(descending, exponents, size);
+    }
+
+
+    // Lays out the first size coefficients, whose exponents must be strictly descending
+    private HornerEvaluator(double[] coefficients, int[] exponents, int size) {
+        this.coefficients = Arrays.copyOf(coefficients, size);
+        this.gaps = new int[size];
+        boolean hasNoGaps = true;
+        int powerRoundings = 0;
+        for (int i = 1; i < size; i++) {
+            gaps[i] = exponents[i - 1] - exponents[i];
+            if (gaps[i] != 1)
+                hasNoGaps = false;
+            powerRoundings += roundingsForPower(gaps[i]);
+        }
+
+        this.lowestExponent = (size == 0) ? 0 : exponents[size - 1];
+        this.dense = hasNoGaps;
+
+        int negatives = 0;
+        while (negatives < size && exponents[size - 1 - negatives] < 0)
+            negatives++;
+        this.split = size - negatives;
+        this.nonNegativeShift = split == 0 ? 0 : exponents[split - 1];
+        this.negativeShift = split == size ? 0 : -exponents[split];
+
+        // Horner: the roundings of each power plus one addition per term, then the power shift of both parts
+        // and their sum. Per-term path: one pow, one multiplication and one addition per term.
+        int hornerOperations = powerRoundings + size + roundingsForPower(nonNegativeShift)
+                + roundingsForPower(negativeShift) + 2;
+        this.roundedOperations = hornerOperations + 3 * size;
+    }
+
+
+    /**
+     * Evaluates the Polynomial at the given value of its literal.
+     *
+     * @param value the value of the literal
+     * @return the result
+     */
+    double evaluate(double value) {
+        if (coefficients.length == 0)
+            return 0;
+        if (split == coefficients.length)
+            return evaluateNonNegative(value);
+        if (split == 0)
+            return evaluateNegative(value);
+        return evaluateNonNegative(value) + evaluateNegative(value);
+    }
+
+    // Horner's scheme in the value over the terms before split
+    private double evaluateNonNegative(double value) {
+        double result = coefficients[0];
+
+        if (dense) {
+            for (int i = 1; i < split; i++)
+                result = result * value + coefficients[i];
+        } else {
+            for (int i = 1; i < split; i++)
+                result = result * power(value, gaps[i]) + coefficients[i];
+        }
+
+        return nonNegativeShift == 0 ? result : result * power(value, nonNegativeShift);
+    }
+
+    // Horner's scheme in the reciprocal of the value over the terms from split, the most negative exponent first
+    private double evaluateNegative(double value) {
+        double result = coefficients[coefficients.length - 1];
+        for (int i = coefficients.length - 1; i > split; i--)
+            result = result * power(value, -gaps[i]) + coefficients[i - 1];
+
+        return result * power(value, -negativeShift);
+    }
+
+
+    /**
+     * Gets the algorithm of an evaluation at a number of values, for the events.
+     *
+     * @param valueCount the number of values
+     * @return "vector" or "blocked" for arrays evaluated at once, "horner" or "sparse-horner" otherwise
+     */
+    String getAlgorithm(int valueCount) {
+        if (valueCount > 1 && VECTOR_API_AVAILABLE && lowestExponent >= 0)
+            return "vector";
+        if (valueCount > 1 && dense && lowestExponent >= 0)
+            return "blocked";
+        return dense ? "horner" : "sparse-horner";
+    }
+
+
+    /**
+     * Evaluates the Polynomial at every value in the range [from, to) of the given array.
+     * The result for each value is identical to {@link #evaluate(double)}.
+     *
+     * @param values the values of the literal
+     * @param results where the results are written, at the same indices as the values
+     * @param from the first index, inclusive
+     * @param to the last index, exclusive
+     */
+    void evaluate(double[] values, double[] results, int from, int to) {
+        if (coefficients.length == 0) {
+            Arrays.fill(results, from, to, 0);
+            return;
+        }
+
+        int index = from;
+        if (VECTOR_API_AVAILABLE && lowestExponent >= 0)
+            index = VectorizedHorner.evaluate(coefficients, gaps, lowestExponent, dense, values, results, from, to);
+
+        if (!dense || lowestExponent < 0) { // Negative exponents are evaluated apart, one value at a time
+            for (; index < to; index++)
+                results[index] = evaluate(values[index]);
+            return;
+        }
+
+        // Loop over the coefficients outside and the values inside, using the results as accumulators.
+        // The inner loop has no dependency between iterations, so the JIT can vectorize it on its own.
+        for (int blockStart = index; blockStart < to; blockStart += BLOCK_SIZE) {
+            int blockEnd = Math.min(blockStart + BLOCK_SIZE, to);
+
+            Arrays.fill(results, blockStart, blockEnd, coefficients[0]);
+            for (int j = 1; j < coefficients.length; j++) {
+                double coefficient = coefficients[j];
+                for (int k = blockStart; k < blockEnd; k++)
+                    results[k] = results[k] * values[k] + coefficient;
+            }
+
+            if (lowestExponent != 0)
+                for (int k = blockStart; k < blockEnd; k++)
+                    results[k] = results[k] * power(values[k], lowestExponent);
+        }
+    }
+
+
+    /**
+     * Returns the bound on the difference between {@link #evaluate(double)}
+     * and the per-term sum of {@link Term#evaluate(double)} at the given value.
+     *
+     * @param value the value of the literal
+     * @return the error bound
+     */
+    double errorBound(double value) {
+        double magnitude = 0;
+        double absoluteValue = Math.abs(value);
+
+        for (int i = 0; i < split; i++)
+            magnitude = (i == 0 ? 0 : magnitude * power(absoluteValue, gaps[i])) + Math.abs(coefficients[i]);
+        magnitude *= power(absoluteValue, nonNegativeShift);
+
+        double negativeMagnitude = 0;
+        for (int i = coefficients.length - 1; i >= split; i--) {
+            double power = i == coefficients.length - 1 ? 0 : power(absoluteValue, -gaps[i + 1]);
+            negativeMagnitude = negativeMagnitude * power + Math.abs(coefficients[i]);
+        }
+        magnitude += negativeMagnitude * power(absoluteValue, -negativeShift);
+
+        double k = roundedOperations * UNIT_ROUNDOFF;
+        return k / (1 - k) * magnitude;
+    }
+
+
+    // Raises the value to an integer exponent by repeated squaring
+    static double power(double value, int exponent) {
+        if (exponent == 1)
+            return value;
+        if (exponent < 0)
+            return 1 / power(value, -exponent);
+
+        double result = 1;
+        double base = value;
+        while (exponent != 0) {
+            if ((exponent & 1) != 0)
+                result *= base;
+            base *= base;
+            exponent >>>= 1;
+        }
+        return result;
+    }
+
+    // The number of roundings power(value, exponent) is as accurate as. Each squaring doubles the relative error
+    // of its base, so the power of n is no better than n - 1 multiplications in a row, however few it does.
+    private static int roundingsForPower(int exponent) {
+        return exponent; // n - 1 multiplications, + 1 for the reciprocal of negative powers
+    }
+
+
+    /**
+     * Evaluates the values of a source spliterator block by block with the batch kernel.
+     * Splitting is only allowed between blocks, so the encounter order is preserved.
+     */
+    final class BatchSpliterator implements Spliterator.OfDouble, DoubleConsumer {
+        private final Spliterator.OfDouble source;
+        private final double[] values = new double[BLOCK_SIZE];
+        private final double[] results = new double[BLOCK_SIZE];
+        private int position;
+        private int size;
+
+        BatchSpliterator(Spliterator.OfDouble source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean tryAdvance(DoubleConsumer action) {
+            if (position == size && !fill())
+                return false;
+
+            action.accept(results[position++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(DoubleConsumer action) {
+            do {
+                while (position < size)
+                    action.accept(results[position++]);
+            } while (fill());
+        }
+
+        // Reads and evaluates the next block, returns false if the source is exhausted
+        private boolean fill() {
+            size = 0;
+            position = 0;
+            while (size < BLOCK_SIZE && source.tryAdvance(this)) {
+                // accept(double) stores the value
+            }
+            evaluate(values, results, 0, size);
+            return size > 0;
+        }
+
+        @Override
+        public void accept(double value) {
+            values[size++] = value;
+        }
+
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            if (position < size)
+                return null; // the buffered values come before any prefix of the source
+
+            Spliterator.OfDouble prefix = source.trySplit();
+            return prefix == null ? null : new BatchSpliterator(prefix);
+        }
+
+        @Override
+        public long estimateSize() {
+            long remaining = source.estimateSize();
+            return remaining == Long.MAX_VALUE ? remaining : remaining + (size - position);
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics() & (ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE | CONCURRENT);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package midterms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Polynomial that can't be modified, so it can be cached and shared between threads without a copy or a lock.
+ * <p>
+ * Its terms are copied once when it is made and never change afterwards, and its evaluation kernel, fingerprint
+ * and view of its terms are built in the constructor too, so reading it never writes anything.
+ * Only the view is a final field: the state it inherits from Polynomial isn't, so an ImmutablePolynomial must be
+ * published safely to other threads, i.e. through a concurrent collection, a volatile field or a lock, as the caches
+ * of this package do. Every thread can then read it at the same time.
+ * {@link #getTermView()} is an unmodifiable view of {@link ImmutableTerm}s in descending exponent order.
+ * The operations still return new Polynomials, which can be modified.
+ */
+public final class ImmutablePolynomial extends Polynomial {
+    private final List<Term> termView;
+
+
+    private ImmutablePolynomial(Polynomial polynomial) {
+        super(polynomial);
+        getFingerprint();
+        evaluator();
+
+        ArrayList<Term> terms = termList();
+        ArrayList<Term> immutableTerms = new ArrayList<>(terms.size());
+        for (Term term : terms)
+            immutableTerms.add(ImmutableTerm.of(term));
+        this.termView = List.copyOf(immutableTerms);
+    }
+
+
+    /**
+     * Gets an ImmutablePolynomial with the terms of a Polynomial.
+     *
+     * @param polynomial the Polynomial
+     * @return the Polynomial itself if it is already immutable, else an immutable copy
+     */
+    public static ImmutablePolynomial of(Polynomial polynomial) {
+        return polynomial instanceof ImmutablePolynomial immutable ? immutable : new ImmutablePolynomial(polynomial);
+    }
+
+
+    /**
+     * Gets a copy of the terms, in descending exponent order. Use {@link #getTermView()} to avoid the copy.
+     *
+     * @return the terms, a list which may be modified of ImmutableTerms which can't
+     */
+    @Override
+    public ArrayList<Term> getTerms() {
+        return new ArrayList<>(termView);
+    }
+
+    /**
+     * Gets the terms, in descending exponent order.
+     *
+     * @return an unmodifiable view of the terms, the same at every call
+     */
+    public List<Term> getTermView() {
+        return termView;
+    }
+
+
+    /**
+     * Not supported, an ImmutablePolynomial can't be modified.
+     *
+     * @param terms the terms
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setTerms(ArrayList<Term> terms) {
+        throw unsupported();
+    }
+
+    /**
+     * Not supported, an ImmutablePolynomial can't be modified.
+     *
+     * @param literalCoefficient the literal coefficient
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setLiteralCoefficient(char literalCoefficient) {
+        throw unsupported();
+    }
+
+    /**
+     * Not supported, an ImmutablePolynomial can't be modified. Use {@link #addTo(Polynomial)}.
+     *
+     * @param coefficient the coefficient of the term
+     * @param literal     the literal of the term
+     * @param exponent    the exponent of the term
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addTerm(double coefficient, char literal, int exponent) {
+        throw unsupported();
+    }
+
+    /**
+     * Not supported, an ImmutablePolynomial can't be modified. Use {@link #addTo(Polynomial)}.
+     *
+     * @param newTerm the term
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addTerm(Term newTerm) {
+        throw unsupported();
+    }
+
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("ImmutablePolynomial can't be modified. ");
+    }
+}
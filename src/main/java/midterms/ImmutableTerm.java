@@ -0,0 +1,94 @@
+package midterms;
+
+/**
+ * A Term that can't be modified, so it can be shared between Polynomials and threads without a copy.
+ * Its fields are those of Term, which aren't final, so it must be published safely to other threads,
+ * e.g. through the final view of an {@link ImmutablePolynomial}.
+ * The operations that return a new Term still return a Term that can be modified.
+ */
+public final class ImmutableTerm extends Term {
+
+    /**
+     * Constructs an ImmutableTerm given its datafields.
+     *
+     * @param coefficient the coefficient of this Term
+     * @param literal     the literal of this Term
+     * @param exponent    the exponent of this Term
+     */
+    public ImmutableTerm(double coefficient, char literal, int exponent) {
+        super(coefficient, literal, exponent);
+    }
+
+
+    /**
+     * Gets an ImmutableTerm with the values of a Term.
+     *
+     * @param term the Term
+     * @return the Term itself if it is already immutable, else an immutable copy
+     */
+    public static ImmutableTerm of(Term term) {
+        return term instanceof ImmutableTerm immutable ? immutable : new ImmutableTerm(term.getCoefficient(),
+                term.getLiteral(), term.getExponent());
+    }
+
+
+    /**
+     * Not supported, an ImmutableTerm can't be modified.
+     *
+     * @param coefficient the coefficient
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setCoefficient(double coefficient) {
+        throw unsupported();
+    }
+
+    /**
+     * Not supported, an ImmutableTerm can't be modified.
+     *
+     * @param literal the literal
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setLiteral(char literal) {
+        throw unsupported();
+    }
+
+    /**
+     * Not supported, an ImmutableTerm can't be modified.
+     *
+     * @param exponent the exponent
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setExponent(int exponent) {
+        throw unsupported();
+    }
+
+    /**
+     * Not supported, an ImmutableTerm can't be modified. Use {@link #getSumWith(Term)}.
+     *
+     * @param other the other Term
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void increaseBy(Term other) {
+        throw unsupported();
+    }
+
+    /**
+     * Not supported, an ImmutableTerm can't be modified. Use {@link #getDifferenceWith(Term)}.
+     *
+     * @param other the other Term
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void decreaseBy(Term other) {
+        throw unsupported();
+    }
+
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("ImmutableTerm can't be modified. ");
+    }
+}
@@ -0,0 +1,120 @@
+package midterms;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, with logarithmic buckets like HdrHistogram.
+ * <p>
+ * Values below {@value #SUB_BUCKET_COUNT} have a bucket each. Above, every power of two is split into
+ * {@value #HALF_SUB_BUCKET_COUNT} linear buckets, so a percentile is off by at most 1/16 of the value,
+ * whatever its magnitude. The 960 buckets cover every positive long.
+ * {@link #record} is a few atomic increments, safe from any number of threads, and never allocates.
+ * Percentiles are read while values are recorded, so they may miss the values of the moment.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - 1 - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+            current = max.get();
+    }
+
+
+    /**
+     * Gets count.
+     *
+     * @return the number of latencies recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets sum.
+     *
+     * @return the sum of the latencies recorded, in nanoseconds
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Gets max.
+     *
+     * @return the highest latency recorded, in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+
+    /**
+     * Gets the latency at a percentile: the highest value of the bucket where that share of the latencies is reached.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency in nanoseconds, 0 if nothing was recorded
+     * @throws IllegalArgumentException if the percentile is out of 0 to 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100))
+            throw new IllegalArgumentException("Percentile must be from 0 to 100. ");
+
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(highestValueOf(i), getMax());
+        }
+        return getMax();
+    }
+
+
+    // The bucket of a value, the top 5 bits of the value pick the sub-bucket of its power of two
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT
+                + (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+    }
+
+    // The highest value that falls in the bucket
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT)
+            return bucket;
+        int shift = (bucket - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = (bucket - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1; // wraps to Long.MAX_VALUE for the last bucket
+    }
+}
@@ -0,0 +1,314 @@
+package midterms.LogsPackage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sidecar index of the byte offset where each record of the history file starts, kept next to it as
+ * {@code <history file>.idx}.
+ * <p>
+ * The index file holds a header (a magic number, the id of the history file, the length of it covered,
+ * the number of logs)
+ * followed by the offsets as longs. {@link #refresh()} only walks the records appended to the history file since
+ * the last refresh, and rebuilds the index from scratch if it doesn't match the history file anymore.
+ * Logs are read a page at a time by mapping just their part of the history file, so nothing is kept in memory.
+ */
+public class HistoryIndex {
+    private static final long MAGIC = 0x5045484958303033L; // "PEHIX003"
+    private static final int HEADER_BYTES = 4 * Long.BYTES;
+    private static final long SCAN_WINDOW_BYTES = 1 << 26;
+    private static final int RECORD_PREFIX_BYTES = Log.RECORD_HEADER_BYTES + 1; // the length and the operation
+
+    private final Path logFile;
+    private final Path indexFile;
+    private long fileId;
+    private long indexedLength; // the history file is indexed up to here, always the end of a record
+    private long count;
+
+
+    /**
+     * Constructs a HistoryIndex of the history file. Nothing is read until {@link #refresh()}.
+     *
+     * @param logFile the history file
+     */
+    public HistoryIndex(Path logFile) {
+        this.logFile = logFile;
+        this.indexFile = logFile.resolveSibling(logFile.getFileName() + ".idx");
+    }
+
+
+    /**
+     * Gets index file.
+     *
+     * @return the path of the sidecar index
+     */
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+
+    /**
+     * Gets the number of logs, as of the last refresh.
+     *
+     * @return the number of logs
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+
+    /**
+     * Gets the id of the history file, as of the last refresh.
+     *
+     * @return the id written in the header of the history file, 0 if it has none yet
+     */
+    synchronized long getFileId() {
+        return fileId;
+    }
+
+
+    /**
+     * Reads the offsets of logs in the history file.
+     *
+     * @param from the index of the first log
+     * @param length the number of logs
+     * @return where their records start
+     * @throws IOException if the index can't be read
+     * @throws IndexOutOfBoundsException if the logs are not all indexed
+     */
+    synchronized long[] offsets(long from, int length) throws IOException {
+        if (from < 0 || length < 0 || from + length > count)
+            throw new IndexOutOfBoundsException("No logs from " + from + " to " + (from + length) + ". ");
+
+        long[] offsets = new long[length];
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length * Long.BYTES);
+            readFully(index, buffer, HEADER_BYTES + from * Long.BYTES);
+            buffer.flip().asLongBuffer().get(offsets);
+        }
+        return offsets;
+    }
+
+
+    /**
+     * Brings the index up to date with the history file, walking only the records appended since the last refresh.
+     * The index is rebuilt if it is missing, corrupted or describes another file.
+     *
+     * @throws IOException if a file can't be read or written, or the history file is not one
+     */
+    public synchronized void refresh() throws IOException {
+        long logLength = Files.exists(logFile) ? Files.size(logFile) : 0;
+        long id = logLength >= Log.FILE_HEADER_BYTES ? readFileId() : 0; // 0 until the header is written
+
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (!readHeader(index, id, logLength)) {
+                index.truncate(0);
+                fileId = id;
+                indexedLength = Math.min(logLength, Log.FILE_HEADER_BYTES);
+                count = 0;
+            }
+
+            if (logLength > indexedLength) {
+                scan(index, logLength);
+                writeHeader(index);
+            }
+        }
+    }
+
+
+    /**
+     * Drops the end of the history file that isn't a whole record, left by a crash in the middle of a write.
+     * Must not be called while a {@link HistoryWriter} is writing to the file.
+     *
+     * @return the number of bytes dropped
+     * @throws IOException if the history file can't be written
+     */
+    public synchronized long truncateIncompleteRecord() throws IOException {
+        refresh();
+        if (!Files.exists(logFile))
+            return 0;
+
+        try (FileChannel log = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+            long dropped = log.size() - indexedLength;
+            if (dropped > 0)
+                log.truncate(indexedLength);
+            return dropped;
+        }
+    }
+
+
+    /**
+     * Reads logs in the order they were written.
+     *
+     * @param from the index of the first log, 0 for the oldest
+     * @param limit the maximum number of logs to read
+     * @return the logs
+     * @throws IOException if a file can't be read, or a record is corrupted
+     * @throws IndexOutOfBoundsException if from is negative or past the last log
+     */
+    public synchronized List<Log> read(long from, int limit) throws IOException {
+        if (from < 0 || from > count)
+            throw new IndexOutOfBoundsException("No log at " + from + ". ");
+
+        int length = (int) Math.min(limit, count - from);
+        List<Log> logs = new ArrayList<>(length);
+        if (length == 0)
+            return logs;
+
+        long[] offsets = new long[length + 1];
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length * Long.BYTES);
+            readFully(index, buffer, HEADER_BYTES + from * Long.BYTES);
+            buffer.flip().asLongBuffer().get(offsets, 0, length);
+        }
+        offsets[length] = from + length < count ? readOffset(from + length) : indexedLength;
+
+        try (FileChannel log = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            MappedByteBuffer page = log.map(FileChannel.MapMode.READ_ONLY, offsets[0], offsets[length] - offsets[0]);
+            for (int i = 0; i < length; i++) {
+                int start = (int) (offsets[i] - offsets[0]) + Log.RECORD_HEADER_BYTES;
+                int end = (int) (offsets[i + 1] - offsets[0]);
+                try {
+                    logs.add(Log.read(page.slice(start, end - start)));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Corrupted history record at " + offsets[i] + ". ", e);
+                }
+            }
+        }
+        return logs;
+    }
+
+
+    // Reads and checks the header, returns false if the index has to be rebuilt
+    private boolean readHeader(FileChannel index, long id, long logLength) throws IOException {
+        long indexSize = index.size();
+        if (indexSize < HEADER_BYTES)
+            return false;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(index, header, 0);
+        header.flip();
+        if (header.getLong() != MAGIC || header.getLong() != id)
+            return false;
+        long length = header.getLong();
+        long logs = header.getLong();
+
+        if (length > logLength || logs < 0 || indexSize != HEADER_BYTES + logs * Long.BYTES)
+            return false;
+
+        fileId = id;
+        indexedLength = length;
+        count = logs;
+
+        // The last indexed record must still end where the index does, otherwise the history file was rewritten
+        return count == 0 || recordEnd(readOffset(count - 1)) == indexedLength;
+    }
+
+    private void writeHeader(FileChannel index) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putLong(MAGIC).putLong(fileId).putLong(indexedLength).putLong(count).flip();
+        while (header.hasRemaining())
+            index.write(header, header.position());
+    }
+
+
+    // Appends the offsets of the whole records between the indexed length and the end of the history file
+    private void scan(FileChannel index, long logLength) throws IOException {
+        long position = indexedLength;
+        ByteBuffer offsets = ByteBuffer.allocate(1 << 16);
+        long offsetPosition = HEADER_BYTES + count * Long.BYTES;
+
+        try (FileChannel log = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            scanning:
+            while (logLength - position >= RECORD_PREFIX_BYTES) {
+                // Only the prefix of every record is read, the window just has to hold the next one
+                long windowLength = Math.min(SCAN_WINDOW_BYTES, logLength - position);
+                MappedByteBuffer window = log.map(FileChannel.MapMode.READ_ONLY, position, windowLength);
+                long windowStart = position;
+
+                while (position - windowStart + RECORD_PREFIX_BYTES <= windowLength) {
+                    int at = (int) (position - windowStart);
+                    long end = position + Log.RECORD_HEADER_BYTES + window.getInt(at);
+                    if (end <= position + Log.RECORD_HEADER_BYTES || end > logLength || !isOperation(window.get(at + 4)))
+                        break scanning; // unfinished or corrupted, the rest isn't indexed
+
+                    if (!offsets.hasRemaining())
+                        offsetPosition = writeOffsets(index, offsets, offsetPosition);
+                    offsets.putLong(position);
+                    count++;
+                    position = end;
+                }
+            }
+        }
+
+        writeOffsets(index, offsets, offsetPosition);
+        indexedLength = position; // an unfinished last record is walked again on the next refresh
+    }
+
+    private static long writeOffsets(FileChannel index, ByteBuffer offsets, long position) throws IOException {
+        offsets.flip();
+        while (offsets.hasRemaining())
+            position += index.write(offsets, position);
+        offsets.clear();
+        return position;
+    }
+
+
+    private static boolean isOperation(byte code) {
+        try {
+            Log.operationOf(code);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Returns where the record starting at the offset ends, or -1 if it isn't a record
+    private long recordEnd(long offset) throws IOException {
+        try (FileChannel log = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            ByteBuffer prefix = ByteBuffer.allocate(RECORD_PREFIX_BYTES);
+            while (prefix.hasRemaining())
+                if (log.read(prefix, offset + prefix.position()) < 0)
+                    return -1;
+
+            int length = prefix.getInt(0);
+            return length > 0 && isOperation(prefix.get(4)) ? offset + Log.RECORD_HEADER_BYTES + length : -1;
+        }
+    }
+
+    // Reads the id of the history file, checking it is one
+    private long readFileId() throws IOException {
+        try (FileChannel log = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Log.FILE_HEADER_BYTES);
+            readFully(log, header, 0);
+            if (header.getLong(0) != Log.FILE_MAGIC)
+                throw new IOException(logFile + " is not a history file. ");
+            return header.getLong(Long.BYTES);
+        }
+    }
+
+    private long readOffset(long position) throws IOException {
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            readFully(index, buffer, HEADER_BYTES + position * Long.BYTES);
+            return buffer.getLong(0);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new IOException("Unexpected end of " + channel + ". ");
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package midterms.LogsPackage;
+
+import midterms.Polynomial;
+import midterms.PolynomialDivisionResult;
+import midterms.PolynomialParser;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A search of the history: logs of an operation, with an operand, with a result, made in a date range,
+ * or any combination of these.
+ * <p>
+ * The text form is a list of filters separated by semicolons, e.g.
+ * {@code op=add; operand=5x^2 + 3x + 1; result=27; from=2024-09-24; to=2024-09-25 18:00}.
+ * Operands and results match on the canonical form of the Polynomial, so "3x + 5x^2 + 1" finds "5x^2 + 3x + 1".
+ * A number result matches the exact result of an evaluation, as well as a constant resulting Polynomial.
+ * Dates are in the system time zone; {@code to} is exclusive, and a date alone means the end of that day.
+ */
+public class HistoryQuery {
+    private final Log.Operation operation;
+    private final Polynomial operand;
+    private final String result;
+    private final long fromMillis;
+    private final long toMillis;
+
+
+    /**
+     * Constructs a HistoryQuery.
+     *
+     * @param operation  the operation of the logs, or null for any
+     * @param operand    an operand of the logs, or null for any
+     * @param result     a number or a Polynomial the logs resulted in, or null for any
+     * @param fromMillis the earliest time of the logs, in epoch milliseconds
+     * @param toMillis   the time the logs are before, in epoch milliseconds
+     * @throws IllegalArgumentException if the result is neither a number nor a Polynomial
+     */
+    public HistoryQuery(Log.Operation operation, Polynomial operand, String result, long fromMillis, long toMillis) {
+        this.operation = operation;
+        this.operand = operand;
+        this.result = result == null ? null : result.trim();
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        if (this.result != null)
+            resultTerms(); // fails now rather than at search time
+    }
+
+
+    /**
+     * Parses a query from its text form.
+     *
+     * @param text the filters, separated by semicolons
+     * @return the query
+     * @throws IllegalArgumentException if a filter is unknown or its value can't be read
+     */
+    public static HistoryQuery parse(String text) {
+        Log.Operation operation = null;
+        Polynomial operand = null;
+        String result = null;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+
+        for (String filter : text.split(";")) {
+            if (filter.isBlank())
+                continue;
+
+            int equals = filter.indexOf('=');
+            if (equals < 0)
+                throw new IllegalArgumentException("Expected key=value in \"" + filter.trim() + "\". ");
+            String key = filter.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+            String value = filter.substring(equals + 1).trim();
+
+            switch (key) {
+                case "op", "operation" -> operation = parseOperation(value);
+                case "operand" -> operand = PolynomialParser.parse(value);
+                case "result" -> result = value;
+                case "from" -> from = parseDate(value, false);
+                case "to" -> to = parseDate(value, true);
+                default -> throw new IllegalArgumentException("Unknown filter: " + key + ". ");
+            }
+        }
+        return new HistoryQuery(operation, operand, result, from, to);
+    }
+
+
+    /**
+     * Gets from millis.
+     *
+     * @return the earliest time of the logs, in epoch milliseconds
+     */
+    public long getFromMillis() {
+        return fromMillis;
+    }
+
+    /**
+     * Gets to millis.
+     *
+     * @return the time the logs are before, in epoch milliseconds
+     */
+    public long getToMillis() {
+        return toMillis;
+    }
+
+
+    /**
+     * Gets the terms every matching log has, at least one of each inner list.
+     *
+     * @return the terms, empty if the query only has a date range
+     */
+    List<List<String>> terms() {
+        List<List<String>> terms = new ArrayList<>();
+        if (operation != null)
+            terms.add(List.of(operationTerm(operation)));
+        if (operand != null)
+            terms.add(List.of(operandTerm(operand)));
+        if (result != null)
+            terms.add(resultTerms());
+        return terms;
+    }
+
+
+    /**
+     * Checks whether a log matches, for the terms that only match by their hash.
+     *
+     * @param log the log
+     * @return true if it matches every filter but the date range
+     */
+    boolean matches(Log log) {
+        List<String> logTerms = termsOf(log);
+        for (List<String> alternatives : terms()) {
+            boolean any = false;
+            for (String term : alternatives)
+                any |= logTerms.contains(term);
+            if (!any)
+                return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Gets the terms a log is indexed by.
+     *
+     * @param log the log
+     * @return its terms
+     */
+    static List<String> termsOf(Log log) {
+        List<String> terms = new ArrayList<>(5);
+        terms.add(operationTerm(log.getOperation()));
+        for (Polynomial operand : log.getOperands())
+            terms.add(operandTerm(operand));
+
+        switch (log.getOperation()) {
+            case EVALUATE -> terms.add(valueTerm(log.getResult()));
+            case DIVIDE -> {
+                PolynomialDivisionResult division = (PolynomialDivisionResult) log.getResultPolynomial();
+                terms.add(resultTerm(division.getQuotient()));
+                if (division.getRemainder() != null && !division.getRemainder().isEmpty())
+                    terms.add(resultTerm(division.getRemainder()));
+            }
+            case TEXT -> {
+            }
+            default -> terms.add(resultTerm(log.getResultPolynomial()));
+        }
+        return terms;
+    }
+
+
+    private List<String> resultTerms() {
+        List<String> terms = new ArrayList<>(2);
+        try {
+            terms.add(valueTerm(Double.parseDouble(result)));
+        } catch (NumberFormatException e) {
+            // not a number, only a Polynomial
+        }
+        try {
+            terms.add(resultTerm(PolynomialParser.parse(result)));
+        } catch (IllegalArgumentException e) {
+            if (terms.isEmpty()) // a number such as 1e5 is not a Polynomial
+                throw e;
+        }
+        return terms;
+    }
+
+    private static String operationTerm(Log.Operation operation) {
+        return "op:" + operation;
+    }
+
+    private static String operandTerm(Polynomial polynomial) {
+        return "operand:" + polynomial;
+    }
+
+    private static String resultTerm(Polynomial polynomial) {
+        return "result:" + (polynomial == null ? "0" : polynomial.toString());
+    }
+
+    private static String valueTerm(double value) {
+        return "value:" + (value == 0 ? 0.0 : value); // -0.0 and 0.0 are the same result
+    }
+
+
+    private static Log.Operation parseOperation(String value) {
+        String name = value.toUpperCase(Locale.ROOT);
+        for (Log.Operation operation : Log.Operation.values())
+            if (operation.name().equals(name) || operation.getTitle().equals(name))
+                return operation;
+        throw new IllegalArgumentException("Unknown operation: " + value + ". ");
+    }
+
+    // Reads "2024-09-24" or "2024-09-24 18:00", a date alone is the start of the day, or its end if end is true
+    private static long parseDate(String value, boolean end) {
+        try {
+            LocalDateTime time = value.length() <= 10
+                    ? LocalDate.parse(value).plusDays(end ? 1 : 0).atStartOfDay()
+                    : LocalDateTime.parse(value.replace(' ', 'T'));
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Expected a date like 2024-09-24 or 2024-09-24 18:00: " + value + ". ");
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package midterms.LogsPackage;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads every log of a history, oldest first: the archives of {@link HistoryRotation}, then the history file.
+ * <p>
+ * Archives are decompressed as a stream, one at a time and only once the reader gets to them,
+ * and the history file is read a page at a time through its {@link HistoryIndex}.
+ * The archives are listed when the reader is constructed, so it must not outlive a rotation.
+ */
+public class HistoryReader implements Iterator<Log>, Closeable {
+    private static final int PAGE_SIZE = 256;
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+    private final ArrayDeque<Path> archives;
+    private final HistoryIndex index;
+    private DataInputStream archive; // the archive being read, null once they are all read
+    private long archiveId;
+    private long archivePosition; // of the next record in the archive, once decompressed
+    private Iterator<Log> page = List.<Log>of().iterator();
+    private long[] pageOffsets;
+    private int pagePosition;
+    private long nextIndexed;
+    private Log next;
+    private long nextFileId;
+    private long nextOffset;
+    private long fileId; // where the last log returned was
+    private long offset;
+
+
+    /**
+     * Constructs a HistoryReader. The history file is read as of the last refresh of its index.
+     *
+     * @param index the index of the history file, next to which the archives are
+     * @param logFile the history file
+     * @throws IOException if the archives can't be listed
+     */
+    public HistoryReader(HistoryIndex index, Path logFile) throws IOException {
+        this.archives = new ArrayDeque<>(HistoryRotation.archives(logFile));
+        this.index = index;
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Log next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        Log log = next;
+        next = null;
+        fileId = nextFileId;
+        offset = nextOffset;
+        return log;
+    }
+
+
+    /**
+     * Gets the id of the history file, or of the archive, that held the last log returned by {@link #next()}.
+     *
+     * @return the id written in its header
+     */
+    long getFileId() {
+        return fileId;
+    }
+
+    /**
+     * Gets where the record of the last log returned by {@link #next()} starts, in its file once decompressed.
+     *
+     * @return the offset of the record
+     */
+    long getOffset() {
+        return offset;
+    }
+
+
+    /**
+     * Closes the archive being read.
+     *
+     * @throws IOException if it can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        archives.clear();
+        if (archive != null) {
+            archive.close();
+            archive = null;
+        }
+    }
+
+
+    // Returns the next log, or null at the end of the history
+    private Log read() throws IOException {
+        while (archive != null || !archives.isEmpty()) {
+            if (archive == null) {
+                archive = open(archives.poll());
+                archiveId = archive.readLong();
+                archivePosition = Log.FILE_HEADER_BYTES;
+            }
+
+            nextFileId = archiveId;
+            nextOffset = archivePosition;
+            Log log = readRecord(archive);
+            if (log != null)
+                return log;
+            archive.close();
+            archive = null;
+        }
+
+        if (!page.hasNext() && nextIndexed < index.size()) {
+            List<Log> logs = index.read(nextIndexed, PAGE_SIZE);
+            pageOffsets = index.offsets(nextIndexed, logs.size());
+            pagePosition = 0;
+            nextIndexed += logs.size();
+            page = logs.iterator();
+        }
+        if (!page.hasNext())
+            return null;
+
+        nextFileId = index.getFileId();
+        nextOffset = pageOffsets[pagePosition++];
+        return page.next();
+    }
+
+    // Opens an archive and checks it is one, leaving the stream at the id of the file
+    static DataInputStream open(Path archive) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(archive), STREAM_BUFFER_SIZE), STREAM_BUFFER_SIZE));
+        try {
+            if (in.readLong() != Log.FILE_MAGIC)
+                throw new IOException(archive + " is not a history archive. ");
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    // Returns the next log of the archive, or null at its end
+    private Log readRecord(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        archivePosition += Log.RECORD_HEADER_BYTES + length;
+
+        if (length < 1)
+            throw new IOException("Corrupted history archive. ");
+        byte[] body = new byte[length];
+        in.readFully(body);
+        try {
+            return Log.read(ByteBuffer.wrap(body));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted history archive. ", e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package midterms.LogsPackage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * When the history file is rotated, and how long its archives are kept.
+ * <p>
+ * Once the history file reaches the maximum size, or the maximum age since it was created, it is renamed to
+ * {@code <history file>.<sequence>}, compressed with {@link GZIPOutputStream} to {@code <history file>.<sequence>.gz}
+ * and a new history file is started. Archives beyond the maximum count, or older than the maximum age, are deleted.
+ * {@link HistoryReader} streams the archives in order, one at a time.
+ */
+public class HistoryRotation {
+    /** The default size of the history file before it is rotated, 8 MiB. */
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 8L << 20;
+
+    /** The default age of the history file before it is rotated, 7 days. */
+    public static final long DEFAULT_MAX_SEGMENT_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /** The default number of archives kept. */
+    public static final int DEFAULT_MAX_ARCHIVES = 32;
+
+    /** The default age of the archives kept, 365 days. */
+    public static final long DEFAULT_MAX_ARCHIVE_AGE_MILLIS = TimeUnit.DAYS.toMillis(365);
+
+    /** Rotates with the default limits. */
+    public static final HistoryRotation DEFAULT = new HistoryRotation(DEFAULT_MAX_SEGMENT_BYTES,
+            DEFAULT_MAX_SEGMENT_AGE_MILLIS, DEFAULT_MAX_ARCHIVES, DEFAULT_MAX_ARCHIVE_AGE_MILLIS);
+
+    /** Never rotates, the history file grows forever. */
+    public static final HistoryRotation NEVER = new HistoryRotation(Long.MAX_VALUE, Long.MAX_VALUE,
+            Integer.MAX_VALUE, Long.MAX_VALUE);
+
+    private static final String ARCHIVE_SUFFIX = ".gz";
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    private final long maxSegmentBytes;
+    private final long maxSegmentAgeMillis;
+    private final int maxArchives;
+    private final long maxArchiveAgeMillis;
+
+
+    /**
+     * Constructs a HistoryRotation.
+     *
+     * @param maxSegmentBytes     the size of the history file before it is rotated
+     * @param maxSegmentAgeMillis its age before it is rotated
+     * @param maxArchives         the number of archives kept, 0 to delete them right away
+     * @param maxArchiveAgeMillis the age of the archives kept, from when they were rotated
+     * @throws IllegalArgumentException if a size or an age is less than 1, or maxArchives is negative
+     */
+    public HistoryRotation(long maxSegmentBytes, long maxSegmentAgeMillis, int maxArchives, long maxArchiveAgeMillis) {
+        if (maxSegmentBytes < 1 || maxSegmentAgeMillis < 1 || maxArchiveAgeMillis < 1)
+            throw new IllegalArgumentException("Rotation sizes and ages must be at least 1. ");
+        if (maxArchives < 0)
+            throw new IllegalArgumentException("Number of archives kept can't be negative. ");
+
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeMillis = maxSegmentAgeMillis;
+        this.maxArchives = maxArchives;
+        this.maxArchiveAgeMillis = maxArchiveAgeMillis;
+    }
+
+
+    /**
+     * Gets max segment bytes.
+     *
+     * @return the size of the history file before it is rotated
+     */
+    public long getMaxSegmentBytes() {
+        return maxSegmentBytes;
+    }
+
+    /**
+     * Gets max segment age millis.
+     *
+     * @return the age of the history file before it is rotated
+     */
+    public long getMaxSegmentAgeMillis() {
+        return maxSegmentAgeMillis;
+    }
+
+    /**
+     * Gets max archives.
+     *
+     * @return the number of archives kept
+     */
+    public int getMaxArchives() {
+        return maxArchives;
+    }
+
+    /**
+     * Gets max archive age millis.
+     *
+     * @return the age of the archives kept
+     */
+    public long getMaxArchiveAgeMillis() {
+        return maxArchiveAgeMillis;
+    }
+
+
+    /**
+     * Checks whether a history file must be rotated.
+     *
+     * @param segmentBytes   the size of the history file
+     * @param startedMillis  when it was created, in epoch milliseconds
+     * @param nowMillis      the current time, in epoch milliseconds
+     * @return true if it has reached the maximum size or age
+     */
+    boolean isDue(long segmentBytes, long startedMillis, long nowMillis) {
+        return segmentBytes >= maxSegmentBytes || nowMillis - startedMillis >= maxSegmentAgeMillis;
+    }
+
+
+    /**
+     * Lists the archives of a history file, oldest first.
+     *
+     * @param logFile the history file
+     * @return the archives
+     * @throws IOException if the directory can't be listed
+     */
+    public static List<Path> archives(Path logFile) throws IOException {
+        List<Path> archives = new ArrayList<>();
+        for (long sequence : sequences(logFile, true))
+            archives.add(archive(logFile, sequence));
+        return archives;
+    }
+
+
+    /**
+     * Renames the history file as the next archive, before it is compressed by {@link #compress}.
+     * A new history file must be started right after.
+     *
+     * @param logFile the history file, closed
+     * @return the renamed history file
+     * @throws IOException if it can't be renamed
+     */
+    static Path detach(Path logFile) throws IOException {
+        long last = 0;
+        for (long sequence : sequences(logFile, true))
+            last = Math.max(last, sequence);
+        for (long sequence : sequences(logFile, false))
+            last = Math.max(last, sequence);
+
+        return Files.move(logFile, logFile.resolveSibling(logFile.getFileName() + "." + (last + 1)),
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Compresses the renamed history files left to compress, a rotation interrupted by a crash included,
+     * then deletes the archives beyond the retention limits.
+     *
+     * @param logFile the history file
+     * @throws IOException if a file can't be compressed or deleted
+     */
+    void compress(Path logFile) throws IOException {
+        for (long sequence : sequences(logFile, false)) {
+            Path detached = logFile.resolveSibling(logFile.getFileName() + "." + sequence);
+            Path archive = archive(logFile, sequence);
+            Path partial = archive.resolveSibling(archive.getFileName() + ".tmp");
+
+            try (InputStream in = Files.newInputStream(detached);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), COPY_BUFFER_SIZE)) {
+                in.transferTo(out);
+            }
+            Files.move(partial, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(detached);
+        }
+
+        List<Path> archives = archives(logFile);
+        long oldest = System.currentTimeMillis() - maxArchiveAgeMillis;
+        for (int i = 0; i < archives.size(); i++) {
+            Path archive = archives.get(i);
+            if (i < archives.size() - maxArchives || Files.getLastModifiedTime(archive).toMillis() < oldest)
+                Files.delete(archive);
+        }
+    }
+
+
+    private static Path archive(Path logFile, long sequence) {
+        return logFile.resolveSibling(logFile.getFileName() + "." + sequence + ARCHIVE_SUFFIX);
+    }
+
+    // The sequence numbers of the archives, or of the renamed history files not compressed yet, in order
+    private static long[] sequences(Path logFile, boolean compressed) throws IOException {
+        Path directory = logFile.toAbsolutePath().getParent();
+        String prefix = logFile.getFileName() + ".";
+        String suffix = compressed ? ARCHIVE_SUFFIX : "";
+
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(suffix))
+                    continue;
+
+                String sequence = name.substring(prefix.length(), name.length() - suffix.length());
+                if (!sequence.isEmpty() && sequence.chars().allMatch(Character::isDigit) && sequence.length() < 19)
+                    sequences.add(Long.parseLong(sequence));
+            }
+        }
+        return sequences.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+}
@@ -0,0 +1,891 @@
+package midterms.LogsPackage;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index of the history, kept next to it in {@code <history file>.search/}, so logs are found
+ * by operation, operand, result and date without reading the history.
+ * <p>
+ * Logs are numbered in the order they were written, archives included. The index holds:
+ * <ul>
+ *     <li>{@code logs.bin}, the time and the offset of the record of every log, by number.
+ *     The time is the latest so far rather than the time of the log, so the column is sorted
+ *     and a date range is found by binary search, even if the clock went back;</li>
+ *     <li>{@code files.bin}, the number of the first log of every history file, and the id in its header;</li>
+ *     <li>immutable postings segments, each covering a range of log numbers: the sorted numbers of the logs of
+ *     every term, and a dictionary of the terms sorted by their 64-bit hash.</li>
+ * </ul>
+ * {@link #add} buffers the terms of new logs in memory and {@link #flush()} writes them as a new segment,
+ * which is when they become searchable. Like the levels of a log-structured merge tree, every
+ * {@value #MERGE_FACTOR} segments of a level are merged into one of the next level, so a search only looks
+ * at a few segments. Terms are matched by hash, and the logs are checked against the query when read.
+ * The index is not forced to the disk: what a crash loses is indexed again by {@link #catchUp}.
+ */
+public class HistorySearch {
+    /** The number of segments of a level merged into one segment of the next level. */
+    public static final int MERGE_FACTOR = 8;
+
+    private static final long MAGIC = 0x5045534541523031L; // "PESEAR01"
+    private static final int SEGMENT_HEADER_BYTES = 3 * Long.BYTES; // the magic, the number of terms, the dictionary
+    private static final int ENTRY_LONGS = 3; // a dictionary entry: the term, its first posting, its posting count
+    private static final int ENTRY_BYTES = 2 * Long.BYTES; // of logs.bin and files.bin
+    private static final int REBUILD_FLUSH_LOGS = 1 << 16;
+    private static final int CATCH_UP_PAGE_SIZE = 256;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String SEGMENT_PREFIX = "postings-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path logFile;
+    private final Path directory;
+    private final Path logsFile;
+    private final Path filesFile;
+    private final List<Segment> segments = new ArrayList<>();
+    private long count; // of the logs searchable, always the end of the last segment
+    private long[] fileFirsts = new long[0];
+    private long[] fileIds = new long[0];
+    private long lastMillis = Long.MIN_VALUE;
+    private final Map<Long, Path> archiveIds = new HashMap<>();
+
+    // Added, not flushed yet
+    private final HashMap<Long, PostingList> pending = new HashMap<>();
+    private long[] pendingLogs = new long[2 * 64]; // time and offset
+    private int pendingCount;
+    private long[] pendingFiles = new long[0]; // first log and id
+    private long pendingLastMillis = Long.MIN_VALUE;
+
+
+    /**
+     * Opens the search index of a history file, creating it if needed.
+     * What an interrupted flush or merge left behind is cleaned up.
+     *
+     * @param logFile the history file
+     * @throws IOException if the index can't be read
+     */
+    public HistorySearch(Path logFile) throws IOException {
+        this.logFile = logFile;
+        this.directory = logFile.resolveSibling(logFile.getFileName() + ".search");
+        this.logsFile = directory.resolve("logs.bin");
+        this.filesFile = directory.resolve("files.bin");
+        Files.createDirectories(directory);
+        load();
+    }
+
+
+    /**
+     * Gets the number of logs searchable.
+     *
+     * @return the number of logs indexed and flushed
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+
+    /**
+     * Gets the number of postings segments.
+     *
+     * @return the number of segments a search looks at
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+
+    /**
+     * Adds a log after the last one. It is searchable once flushed.
+     *
+     * @param log    the log
+     * @param fileId the id of the history file it was written to
+     * @param offset where its record starts in the history file
+     */
+    public synchronized void add(Log log, long fileId, long offset) {
+        long number = count + pendingCount;
+        boolean newFile = pendingFiles.length > 0 ? pendingFiles[pendingFiles.length - 1] != fileId
+                : fileIds.length == 0 || fileIds[fileIds.length - 1] != fileId;
+        if (newFile) {
+            pendingFiles = Arrays.copyOf(pendingFiles, pendingFiles.length + 2);
+            pendingFiles[pendingFiles.length - 2] = number;
+            pendingFiles[pendingFiles.length - 1] = fileId;
+        }
+
+        if (2 * pendingCount + 2 > pendingLogs.length)
+            pendingLogs = Arrays.copyOf(pendingLogs, 2 * pendingLogs.length);
+        pendingLastMillis = Math.max(Math.max(lastMillis, pendingLastMillis), log.getEpochMillis());
+        pendingLogs[2 * pendingCount] = pendingLastMillis;
+        pendingLogs[2 * pendingCount + 1] = offset;
+        pendingCount++;
+
+        for (String term : HistoryQuery.termsOf(log))
+            pending.computeIfAbsent(hash(term), key -> new PostingList()).add(number);
+    }
+
+
+    /**
+     * Writes the logs added since the last flush as a new segment, and merges segments if a level is full.
+     * If writing fails, the logs added are dropped, {@link #catchUp} indexes them again.
+     *
+     * @throws IOException if the index can't be written
+     */
+    public synchronized void flush() throws IOException {
+        if (pendingCount == 0)
+            return;
+
+        try {
+            writeEntries(logsFile, count, pendingLogs, pendingCount);
+            long[] files = Arrays.copyOf(fileFirsts, fileFirsts.length + pendingFiles.length / 2);
+            long[] ids = Arrays.copyOf(fileIds, files.length);
+            for (int i = 0; i < pendingFiles.length / 2; i++) {
+                files[fileFirsts.length + i] = pendingFiles[2 * i];
+                ids[fileFirsts.length + i] = pendingFiles[2 * i + 1];
+            }
+            writeEntries(filesFile, fileFirsts.length, pendingFiles, pendingFiles.length / 2);
+
+            // The new segment is what makes the logs searchable
+            long end = count + pendingCount;
+            Path path = segmentPath(0, count, end);
+            try (SegmentWriter segment = new SegmentWriter(path)) {
+                long[] terms = new long[pending.size()];
+                int i = 0;
+                for (long term : pending.keySet())
+                    terms[i++] = term;
+                Arrays.sort(terms);
+                for (long term : terms) {
+                    PostingList postings = pending.get(term);
+                    segment.beginTerm(term);
+                    for (int j = 0; j < postings.size; j++)
+                        segment.posting(postings.numbers[j]);
+                }
+                segment.commit();
+            }
+
+            segments.add(Segment.open(path, 0, count, end));
+            count = end;
+            fileFirsts = files;
+            fileIds = ids;
+            lastMillis = pendingLastMillis;
+        } finally {
+            clearPending();
+        }
+        merge();
+    }
+
+
+    /**
+     * Indexes the logs of the history that aren't yet, e.g. when the history was written without this index,
+     * or a crash came before a flush. Logs of the history file after the last one indexed are added;
+     * if the history file is unknown while it has logs, or doesn't match, the whole history is indexed again.
+     * The history must not be written meanwhile.
+     *
+     * @param index the index of the history file, refreshed
+     * @throws IOException if the history or the index can't be read or written
+     */
+    public synchronized void catchUp(HistoryIndex index) throws IOException {
+        clearPending();
+        int file = fileOf(index.getFileId());
+        long indexed = file >= 0 && (file == fileIds.length - 1) ? count - fileFirsts[file] : -1;
+
+        if (indexed >= 0 && indexed <= index.size()) {
+            while (indexed < index.size()) {
+                List<Log> logs = index.read(indexed, CATCH_UP_PAGE_SIZE);
+                long[] offsets = index.offsets(indexed, logs.size());
+                for (int i = 0; i < logs.size(); i++)
+                    add(logs.get(i), index.getFileId(), offsets[i]);
+                indexed += logs.size();
+                if (pendingCount >= REBUILD_FLUSH_LOGS)
+                    flush();
+            }
+            flush();
+        } else if (index.size() > 0 || (count == 0 && !HistoryRotation.archives(logFile).isEmpty())) {
+            rebuild(index);
+        }
+    }
+
+
+    /**
+     * Finds the logs matching a query. Terms are looked up in the dictionaries of the segments, and the postings
+     * of the rarest filter are checked against the others; the date range is a binary search of the times.
+     *
+     * @param query the query
+     * @return the matching logs, read on demand
+     * @throws IOException if the index can't be read
+     */
+    public synchronized Matches search(HistoryQuery query) throws IOException {
+        long from = 0;
+        long to = count;
+        if (count > 0 && (query.getFromMillis() != Long.MIN_VALUE || query.getToMillis() != Long.MAX_VALUE)) {
+            try (FileChannel channel = FileChannel.open(logsFile, StandardOpenOption.READ)) {
+                LongBuffer times = channel.map(FileChannel.MapMode.READ_ONLY, 0, count * ENTRY_BYTES).asLongBuffer();
+                from = firstAtOrAfter(times, query.getFromMillis());
+                to = Math.max(from, firstAtOrAfter(times, query.getToMillis()));
+            }
+        }
+
+        List<List<String>> filters = query.terms();
+        if (filters.isEmpty())
+            return new Matches(query, null, from, to);
+
+        // The filter with the fewest postings is read, the others are only looked up
+        List<long[]> hashes = new ArrayList<>();
+        int rarest = 0;
+        long fewest = Long.MAX_VALUE;
+        for (List<String> alternatives : filters) {
+            long[] terms = alternatives.stream().mapToLong(HistorySearch::hash).toArray();
+            long postings = 0;
+            for (long term : terms)
+                for (Segment segment : segments)
+                    postings += segment.count(term, from, to);
+            if (postings < fewest) {
+                fewest = postings;
+                rarest = hashes.size();
+            }
+            hashes.add(terms);
+        }
+
+        long[] numbers = postings(hashes.get(rarest), from, to);
+        int matching = 0;
+        for (long number : numbers) {
+            Segment segment = segmentOf(number);
+            boolean all = true;
+            for (int i = 0; i < hashes.size() && all; i++) {
+                if (i == rarest)
+                    continue;
+                boolean any = false;
+                for (long term : hashes.get(i))
+                    any |= segment.contains(term, number);
+                all = any;
+            }
+            if (all)
+                numbers[matching++] = number;
+        }
+        return new Matches(query, Arrays.copyOf(numbers, matching), from, to);
+    }
+
+
+    /**
+     * The logs matching a query, read a page at a time.
+     * A log is only read once asked for, and is left out if it isn't in the history anymore (its archive was
+     * deleted), if its term only matched by hash, or if its time is out of the range after the clock went back.
+     */
+    public class Matches {
+        private final HistoryQuery query;
+        private final long[] numbers; // null for all the logs in the range
+        private final long from;
+        private final long to;
+
+        private Matches(HistoryQuery query, long[] numbers, long from, long to) {
+            this.query = query;
+            this.numbers = numbers;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        /**
+         * Gets the number of logs found, before they are checked when read.
+         *
+         * @return the number of logs found
+         */
+        public long size() {
+            return numbers == null ? to - from : numbers.length;
+        }
+
+
+        /**
+         * Reads logs found.
+         *
+         * @param start the position of the first log to read among those found
+         * @param limit the most logs to read
+         * @return the logs, fewer than limit if some were left out
+         * @throws IOException if the history can't be read
+         */
+        public List<Log> read(long start, int limit) throws IOException {
+            int length = (int) Math.max(0, Math.min(limit, size() - start));
+            long[] page = new long[length];
+            for (int i = 0; i < length; i++)
+                page[i] = numbers == null ? from + start + i : numbers[(int) start + i];
+
+            List<Log> logs = new ArrayList<>(length);
+            for (Log log : fetch(page))
+                if (query.matches(log) && log.getEpochMillis() >= query.getFromMillis()
+                        && log.getEpochMillis() < query.getToMillis())
+                    logs.add(log);
+            return logs;
+        }
+    }
+
+
+    // Reads the logs of ascending numbers, from the history file or their archives
+    private synchronized List<Log> fetch(long[] numbers) throws IOException {
+        List<Log> logs = new ArrayList<>(numbers.length);
+        if (numbers.length == 0)
+            return logs;
+
+        long currentId = -1;
+        try (FileChannel channel = FileChannel.open(logsFile, StandardOpenOption.READ);
+             FileChannel history = Files.exists(logFile) ? FileChannel.open(logFile, StandardOpenOption.READ) : null) {
+            if (history != null && history.size() >= Log.FILE_HEADER_BYTES)
+                currentId = readLong(history, Long.BYTES);
+
+            long[] offsets = new long[numbers.length];
+            for (int i = 0; i < numbers.length; i++)
+                offsets[i] = readLong(channel, numbers[i] * ENTRY_BYTES + Long.BYTES);
+
+            for (int i = 0; i < numbers.length; ) {
+                int file = fileOfLog(numbers[i]);
+                int end = i + 1;
+                while (end < numbers.length && fileOfLog(numbers[end]) == file)
+                    end++;
+
+                if (fileIds[file] == currentId) {
+                    for (int j = i; j < end; j++)
+                        logs.add(readRecord(history, offsets[j]));
+                } else {
+                    readArchived(fileIds[file], offsets, i, end, logs);
+                }
+                i = end;
+            }
+        }
+        return logs;
+    }
+
+    // Reads the logs at ascending offsets of an archive, streaming it up to the last one
+    private void readArchived(long fileId, long[] offsets, int from, int to, List<Log> logs) throws IOException {
+        Path archive = archive(fileId);
+        if (archive == null)
+            return; // deleted by the retention of the rotation
+
+        try (DataInputStream in = HistoryReader.open(archive)) {
+            in.readLong();
+            long position = Log.FILE_HEADER_BYTES;
+            for (int i = from; i < to; i++) {
+                in.skipNBytes(offsets[i] - position);
+                int length = in.readInt();
+                byte[] body = new byte[length];
+                in.readFully(body);
+                position = offsets[i] + Log.RECORD_HEADER_BYTES + length;
+                logs.add(readLog(ByteBuffer.wrap(body), offsets[i]));
+            }
+        } catch (NoSuchFileException | EOFException e) {
+            archiveIds.remove(fileId); // deleted or replaced since it was listed
+        }
+    }
+
+    // Finds the archive of a history file by the id in its header
+    private Path archive(long fileId) throws IOException {
+        Path known = archiveIds.get(fileId);
+        if (known != null && Files.exists(known))
+            return known;
+
+        archiveIds.clear();
+        for (Path archive : HistoryRotation.archives(logFile)) {
+            try (DataInputStream in = HistoryReader.open(archive)) {
+                archiveIds.put(in.readLong(), archive);
+            } catch (NoSuchFileException | EOFException e) {
+                // deleted meanwhile, or too short to be a history
+            }
+        }
+        return archiveIds.get(fileId);
+    }
+
+    private static Log readRecord(FileChannel history, long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Log.RECORD_HEADER_BYTES);
+        readFully(history, length, offset);
+        ByteBuffer body = ByteBuffer.allocate(length.getInt(0));
+        readFully(history, body, offset + Log.RECORD_HEADER_BYTES);
+        return readLog(body.flip(), offset);
+    }
+
+    private static Log readLog(ByteBuffer body, long offset) throws IOException {
+        try {
+            return Log.read(body);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted history record at " + offset + ". ", e);
+        }
+    }
+
+
+    // Indexes the whole history again, archives included
+    private void rebuild(HistoryIndex index) throws IOException {
+        for (Segment segment : segments)
+            Files.delete(segment.path);
+        segments.clear();
+        Files.deleteIfExists(logsFile);
+        Files.deleteIfExists(filesFile);
+        count = 0;
+        fileFirsts = new long[0];
+        fileIds = new long[0];
+        lastMillis = Long.MIN_VALUE;
+
+        try (HistoryReader history = new HistoryReader(index, logFile)) {
+            while (history.hasNext()) {
+                add(history.next(), history.getFileId(), history.getOffset());
+                if (pendingCount >= REBUILD_FLUSH_LOGS)
+                    flush();
+            }
+        }
+        flush();
+    }
+
+    // Merges the last MERGE_FACTOR segments while they are all of the same level
+    private void merge() throws IOException {
+        while (segments.size() >= MERGE_FACTOR) {
+            List<Segment> last = segments.subList(segments.size() - MERGE_FACTOR, segments.size());
+            int level = last.getFirst().level;
+            for (Segment segment : last)
+                if (segment.level != level)
+                    return;
+
+            long first = last.getFirst().first;
+            long end = last.getLast().end;
+            Path path = segmentPath(level + 1, first, end);
+            try (SegmentWriter merged = new SegmentWriter(path)) {
+                int[] positions = new int[MERGE_FACTOR];
+                while (true) {
+                    long term = Long.MAX_VALUE;
+                    boolean any = false;
+                    for (int i = 0; i < MERGE_FACTOR; i++) {
+                        Segment segment = last.get(i);
+                        if (positions[i] < segment.terms) {
+                            term = Math.min(term, segment.term(positions[i]));
+                            any = true;
+                        }
+                    }
+                    if (!any)
+                        break;
+
+                    merged.beginTerm(term);
+                    for (int i = 0; i < MERGE_FACTOR; i++) {
+                        Segment segment = last.get(i);
+                        if (positions[i] < segment.terms && segment.term(positions[i]) == term) {
+                            segment.copyPostings(positions[i], merged);
+                            positions[i]++;
+                        }
+                    }
+                }
+                merged.commit();
+            }
+
+            // A crash before the old segments are deleted leaves them inside the new one, cleaned up by load
+            Segment segment = Segment.open(path, level + 1, first, end);
+            for (Segment old : last)
+                Files.delete(old.path);
+            last.clear();
+            segments.add(segment);
+        }
+    }
+
+
+    // Opens the segments and trims what was written after the last one
+    private void load() throws IOException {
+        List<Segment> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                    continue;
+                }
+                if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX))
+                    continue;
+
+                String[] range = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())
+                        .split("-");
+                try {
+                    found.add(new Segment(file, Integer.parseInt(range[0]), Long.parseLong(range[1]),
+                            Long.parseLong(range[2]), null));
+                } catch (RuntimeException e) {
+                    Files.delete(file); // not a segment name this index writes
+                }
+            }
+        }
+
+        // Longest first, so the segments left by an interrupted merge come after the merged one
+        found.sort((a, b) -> a.first != b.first ? Long.compare(a.first, b.first) : Long.compare(b.end, a.end));
+        for (Segment segment : found) {
+            if (segment.first == count && segment.end > count) {
+                try {
+                    segments.add(Segment.open(segment.path, segment.level, segment.first, segment.end));
+                    count = segment.end;
+                    continue;
+                } catch (IOException e) {
+                    // corrupted, it and what comes after it are indexed again
+                }
+            }
+            Files.delete(segment.path);
+        }
+
+        long logs = Files.exists(logsFile) ? Files.size(logsFile) / ENTRY_BYTES : 0;
+        long[] files = Files.exists(filesFile) ? readEntries(filesFile) : new long[0];
+        if (logs < count || files.length == 0 && count > 0) {
+            for (Segment segment : segments)
+                Files.delete(segment.path);
+            segments.clear();
+            count = 0;
+        }
+
+        int known = 0;
+        while (known < files.length / 2 && files[2 * known] < count)
+            known++;
+        fileFirsts = new long[known];
+        fileIds = new long[known];
+        for (int i = 0; i < known; i++) {
+            fileFirsts[i] = files[2 * i];
+            fileIds[i] = files[2 * i + 1];
+        }
+
+        try (FileChannel channel = FileChannel.open(logsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ)) {
+            channel.truncate(count * ENTRY_BYTES);
+            if (count > 0)
+                lastMillis = readLong(channel, (count - 1) * ENTRY_BYTES);
+        }
+        try (FileChannel channel = FileChannel.open(filesFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate((long) known * ENTRY_BYTES);
+        }
+    }
+
+
+    private void clearPending() {
+        pending.clear();
+        pendingCount = 0;
+        pendingFiles = new long[0];
+        pendingLastMillis = Long.MIN_VALUE;
+    }
+
+    private Path segmentPath(int level, long first, long end) {
+        return directory.resolve(SEGMENT_PREFIX + level + "-" + first + "-" + end + SEGMENT_SUFFIX);
+    }
+
+    // The postings of any of the terms in the range, sorted and without duplicates
+    private long[] postings(long[] terms, long from, long to) {
+        long[] numbers = new long[0];
+        for (long term : terms) {
+            long length = 0;
+            for (Segment segment : segments)
+                length += segment.count(term, from, to);
+            long[] postings = new long[Math.toIntExact(length)];
+            int filled = 0;
+            for (Segment segment : segments)
+                filled = segment.copyPostings(term, from, to, postings, filled);
+            numbers = numbers.length == 0 ? postings : union(numbers, postings);
+        }
+        return numbers;
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        long[] union = new long[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || i < a.length && a[i] < b[j])
+                union[k++] = a[i++];
+            else if (i == a.length || b[j] < a[i])
+                union[k++] = b[j++];
+            else {
+                union[k++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(union, k);
+    }
+
+    private Segment segmentOf(long number) {
+        int low = 0, high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).first <= number)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        return segments.get(low);
+    }
+
+    private int fileOfLog(long number) {
+        int file = Arrays.binarySearch(fileFirsts, number);
+        return file >= 0 ? file : -file - 2;
+    }
+
+    private int fileOf(long fileId) {
+        for (int i = fileIds.length - 1; i >= 0; i--)
+            if (fileIds[i] == fileId)
+                return i;
+        return -1;
+    }
+
+    // The first log number whose time is at least millis, in the time column of logs.bin
+    private long firstAtOrAfter(LongBuffer times, long millis) {
+        long low = 0, high = count;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (times.get((int) (2 * middle)) < millis)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the finalizer of MurmurHash3 to spread the bits
+    static long hash(String term) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : term.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+
+    private static void writeEntries(Path file, long position, long[] entries, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count * ENTRY_BYTES);
+        buffer.asLongBuffer().put(entries, 0, 2 * count);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long at = position * ENTRY_BYTES;
+            while (buffer.hasRemaining())
+                at += channel.write(buffer, at);
+        }
+    }
+
+    private static long[] readEntries(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        long[] entries = new long[bytes.length / ENTRY_BYTES * 2];
+        ByteBuffer.wrap(bytes).asLongBuffer().get(entries);
+        return entries;
+    }
+
+    private static long readLong(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        readFully(channel, buffer, position);
+        return buffer.getLong(0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new EOFException("History ends before the record at " + position + ". ");
+        }
+    }
+
+
+    // The log numbers of a term, while its logs are added
+    private static final class PostingList {
+        private long[] numbers = new long[4];
+        private int size;
+
+        private void add(long number) {
+            if (size > 0 && numbers[size - 1] == number)
+                return; // the same term twice in a log, e.g. adding a Polynomial to itself
+            if (size == numbers.length)
+                numbers = Arrays.copyOf(numbers, 2 * size);
+            numbers[size++] = number;
+        }
+    }
+
+
+    // An immutable segment, mapped: the header, the postings, then the dictionary
+    private static final class Segment {
+        private final Path path;
+        private final int level;
+        private final long first; // the log numbers covered, from first to before end
+        private final long end;
+        private final LongBuffer file;
+        private final int terms;
+        private final int dictionary; // in longs
+
+        private Segment(Path path, int level, long first, long end, LongBuffer file) {
+            this.path = path;
+            this.level = level;
+            this.first = first;
+            this.end = end;
+            this.file = file;
+            this.terms = file == null ? 0 : (int) file.get(1);
+            this.dictionary = file == null ? 0 : (int) (file.get(2) / Long.BYTES);
+        }
+
+        private static Segment open(Path path, int level, long first, long end) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                LongBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+                if (file.limit() < SEGMENT_HEADER_BYTES / Long.BYTES || file.get(0) != MAGIC
+                        || file.get(2) + file.get(1) * ENTRY_LONGS * Long.BYTES != channel.size())
+                    throw new IOException(path + " is not a search segment. ");
+                return new Segment(path, level, first, end, file);
+            }
+        }
+
+        private long term(int entry) {
+            return file.get(dictionary + ENTRY_LONGS * entry);
+        }
+
+        private int find(long term) {
+            int low = 0, high = terms - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long found = term(middle);
+                if (found < term)
+                    low = middle + 1;
+                else if (found > term)
+                    high = middle - 1;
+                else
+                    return middle;
+            }
+            return -1;
+        }
+
+        // The first posting of the entry at or after the number, as an index in the file
+        private int lowerBound(int entry, long number) {
+            int low = (int) file.get(dictionary + ENTRY_LONGS * entry + 1);
+            int high = low + (int) file.get(dictionary + ENTRY_LONGS * entry + 2);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (file.get(middle) < number)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+
+        private long count(long term, long from, long to) {
+            int entry = from < end && to > first ? find(term) : -1;
+            return entry < 0 ? 0 : lowerBound(entry, to) - lowerBound(entry, from);
+        }
+
+        private boolean contains(long term, long number) {
+            int entry = find(term);
+            if (entry < 0)
+                return false;
+            int at = lowerBound(entry, number);
+            int last = (int) (file.get(dictionary + ENTRY_LONGS * entry + 1)
+                    + file.get(dictionary + ENTRY_LONGS * entry + 2));
+            return at < last && file.get(at) == number;
+        }
+
+        // Copies the postings of the term in the range, returns where the next ones go
+        private int copyPostings(long term, long from, long to, long[] numbers, int at) {
+            int entry = from < end && to > first ? find(term) : -1;
+            if (entry < 0)
+                return at;
+
+            int start = lowerBound(entry, from);
+            int length = lowerBound(entry, to) - start;
+            file.get(start, numbers, at, length);
+            return at + length;
+        }
+
+        private void copyPostings(int entry, SegmentWriter writer) throws IOException {
+            int start = (int) file.get(dictionary + ENTRY_LONGS * entry + 1);
+            int length = (int) file.get(dictionary + ENTRY_LONGS * entry + 2);
+            for (int i = start; i < start + length; i++)
+                writer.posting(file.get(i));
+        }
+    }
+
+
+    // Writes a segment to a temporary file, renamed once complete. Postings are written as they come,
+    // the dictionary goes to a second temporary file appended at the end.
+    private static final class SegmentWriter implements AutoCloseable {
+        private final Path path;
+        private final Path partial;
+        private final Path partialDictionary;
+        private final FileChannel postings;
+        private final FileChannel dictionary;
+        private final ByteBuffer postingBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final ByteBuffer dictionaryBuffer = ByteBuffer.allocate(BUFFER_SIZE - BUFFER_SIZE % (ENTRY_LONGS * Long.BYTES));
+        private long written = SEGMENT_HEADER_BYTES / Long.BYTES; // postings, in longs
+        private long terms;
+        private long termStart = -1;
+        private long termTerm;
+        private boolean committed;
+
+        private SegmentWriter(Path path) throws IOException {
+            this.path = path;
+            this.partial = path.resolveSibling(path.getFileName() + ".tmp");
+            this.partialDictionary = path.resolveSibling(path.getFileName() + ".dictionary.tmp");
+            this.postings = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.dictionary = FileChannel.open(partialDictionary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            postings.position(SEGMENT_HEADER_BYTES);
+        }
+
+        private void beginTerm(long term) throws IOException {
+            endTerm();
+            termTerm = term;
+            termStart = written;
+        }
+
+        private void posting(long number) throws IOException {
+            if (!postingBuffer.hasRemaining())
+                drain(postingBuffer, postings);
+            postingBuffer.putLong(number);
+            written++;
+        }
+
+        private void endTerm() throws IOException {
+            if (termStart < 0)
+                return;
+            if (!dictionaryBuffer.hasRemaining())
+                drain(dictionaryBuffer, dictionary);
+            dictionaryBuffer.putLong(termTerm).putLong(termStart).putLong(written - termStart);
+            terms++;
+            termStart = -1;
+        }
+
+        private void commit() throws IOException {
+            endTerm();
+            drain(postingBuffer, postings);
+            drain(dictionaryBuffer, dictionary);
+
+            long dictionaryOffset = written * Long.BYTES;
+            long size = dictionary.size();
+            for (long copied = 0; copied < size; )
+                copied += dictionary.transferTo(copied, size - copied, postings);
+
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES)
+                    .putLong(MAGIC).putLong(terms).putLong(dictionaryOffset).flip();
+            while (header.hasRemaining())
+                postings.write(header, header.position());
+            postings.close();
+            Files.move(partial, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            postings.close();
+            dictionary.close();
+            Files.deleteIfExists(partialDictionary);
+            if (!committed)
+                Files.deleteIfExists(partial);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package midterms.LogsPackage;
+
+import midterms.OperationStats;
+import midterms.PolynomialEvents;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends logs to the history file from a dedicated background thread.
+ * {@link #append(Log)} only puts the log in a bounded queue, and the thread writes the queued logs in batches:
+ * as soon as a batch is full, or when the flush interval has passed since the first log of the batch.
+ * When the queue is full, append waits for the thread to catch up instead of dropping logs.
+ * Logs are written as the binary records described in {@link Log}, after the header of a new file.
+ * <p>
+ * How often the file is forced to the disk is set by the {@link FsyncPolicy}, and when it is rotated and archived
+ * by the {@link HistoryRotation}. Rotation happens on the thread too, between two batches.
+ * A {@link HistorySearch} given to the writer is updated and flushed after every batch.
+ */
+public class HistoryWriter implements AutoCloseable {
+    /** The default number of logs the queue can hold. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** The default number of logs written at once. */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /** The default time a log may wait in the queue before its batch is written. */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+
+    /**
+     * When the history file is forced to the disk.
+     */
+    public enum FsyncPolicy {
+        /** Never, the operating system writes the file back on its own. */
+        NEVER,
+        /** After every batch, so at most one batch is lost on a power failure. */
+        EVERY_BATCH,
+        /** Only when the writer is closed. */
+        ON_CLOSE
+    }
+
+    // Wakes the thread up to write what is queued right away
+    private static final Log FLUSH = new Log("", null);
+
+    private final ArrayBlockingQueue<Log> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final FsyncPolicy fsyncPolicy;
+    private final HistoryRotation rotation;
+    private final Path path;
+    private HistorySearch search; // null if there is none, or it couldn't be updated
+    private long fileId; // written in the header of the history file
+    private FileOutputStream file; // replaced on rotation, only by the thread
+    private DataOutputStream writer;
+    private long segmentBytes;
+    private long startedMillis; // when the history file was created, its age is counted from it
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(); // body of the record being written
+    private final DataOutputStream recordWriter = new DataOutputStream(record);
+    private final Thread thread;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final Object progress = new Object(); // guards written and failure
+    private long written;
+    private IOException failure;
+    private volatile boolean closed;
+
+
+    /**
+     * Constructs a HistoryWriter with the default capacity, batch size and flush interval,
+     * which forces the file to the disk after every batch.
+     *
+     * @param path the history file, created if needed and appended to
+     * @throws IOException if the file can't be opened
+     */
+    public HistoryWriter(Path path) throws IOException {
+        this(path, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, FsyncPolicy.EVERY_BATCH);
+    }
+
+
+    /**
+     * Constructs a HistoryWriter that never rotates the history file, and starts its thread.
+     *
+     * @param path the history file, created if needed and appended to
+     * @param capacity the number of logs the queue can hold
+     * @param batchSize the number of logs written at once
+     * @param flushIntervalMillis the time a log may wait in the queue before its batch is written
+     * @param fsyncPolicy when the file is forced to the disk
+     * @throws IOException if the file can't be opened
+     * @throws IllegalArgumentException if capacity, batchSize or flushIntervalMillis is less than 1
+     */
+    public HistoryWriter(Path path, int capacity, int batchSize, long flushIntervalMillis, FsyncPolicy fsyncPolicy)
+            throws IOException {
+        this(path, capacity, batchSize, flushIntervalMillis, fsyncPolicy, HistoryRotation.NEVER);
+    }
+
+
+    /**
+     * Constructs a HistoryWriter and starts its thread.
+     * Renamed history files left uncompressed by an interrupted rotation are compressed first.
+     *
+     * @param path the history file, created if needed and appended to
+     * @param capacity the number of logs the queue can hold
+     * @param batchSize the number of logs written at once
+     * @param flushIntervalMillis the time a log may wait in the queue before its batch is written
+     * @param fsyncPolicy when the file is forced to the disk
+     * @param rotation when the file is rotated, and how long its archives are kept
+     * @throws IOException if the file can't be opened
+     * @throws IllegalArgumentException if capacity, batchSize or flushIntervalMillis is less than 1
+     */
+    public HistoryWriter(Path path, int capacity, int batchSize, long flushIntervalMillis, FsyncPolicy fsyncPolicy,
+                         HistoryRotation rotation) throws IOException {
+        this(path, capacity, batchSize, flushIntervalMillis, fsyncPolicy, rotation, null);
+    }
+
+
+    /**
+     * Constructs a HistoryWriter that updates a search index of the history, and starts its thread.
+     * Renamed history files left uncompressed by an interrupted rotation are compressed first.
+     *
+     * @param path the history file, created if needed and appended to
+     * @param capacity the number of logs the queue can hold
+     * @param batchSize the number of logs written at once
+     * @param flushIntervalMillis the time a log may wait in the queue before its batch is written
+     * @param fsyncPolicy when the file is forced to the disk
+     * @param rotation when the file is rotated, and how long its archives are kept
+     * @param search the search index every log written is added to, caught up with the history file, or null
+     * @throws IOException if the file can't be opened
+     * @throws IllegalArgumentException if capacity, batchSize or flushIntervalMillis is less than 1
+     */
+    public HistoryWriter(Path path, int capacity, int batchSize, long flushIntervalMillis, FsyncPolicy fsyncPolicy,
+                         HistoryRotation rotation, HistorySearch search) throws IOException {
+        if (capacity < 1 || batchSize < 1 || flushIntervalMillis < 1)
+            throw new IllegalArgumentException("Capacity, batch size and flush interval must be at least 1. ");
+
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.fsyncPolicy = fsyncPolicy;
+        this.rotation = rotation;
+        this.path = path;
+        this.search = search;
+        rotation.compress(path);
+        open();
+
+        this.thread = new Thread(this::run, "history-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * Queues the log to be written. Returns right away unless the queue is full.
+     *
+     * @param log the log to be written
+     * @throws IllegalStateException if the writer is closed, or its thread has stopped
+     * @throws UncheckedIOException  if writing failed, the log is not queued
+     */
+    public void append(Log log) {
+        if (closed)
+            throw new IllegalStateException("History writer is closed. ");
+        checkRunning();
+
+        try {
+            // Full, wait for the thread rather than losing the log, as long as it is there to empty the queue
+            while (!queue.offer(log, flushIntervalNanos + 1_000_000, TimeUnit.NANOSECONDS))
+                checkRunning();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a log. ", e);
+        }
+        appended.incrementAndGet();
+    }
+
+
+    /**
+     * Waits until every log appended so far is written to the file.
+     *
+     * @throws UncheckedIOException if writing failed
+     */
+    public void sync() {
+        long target = appended.get();
+        queue.offer(FLUSH); // If the queue is full, the thread is busy writing anyway
+
+        synchronized (progress) {
+            while (written < target && failure == null && thread.isAlive()) {
+                try {
+                    progress.wait(flushIntervalNanos / 1_000_000 + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (failure != null)
+                throw new UncheckedIOException(failure);
+        }
+    }
+
+
+    /**
+     * Writes every queued log, forces the file to the disk unless the policy is NEVER, and stops the thread.
+     * Further calls do nothing.
+     *
+     * @throws UncheckedIOException if writing failed
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        queue.offer(FLUSH);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (progress) {
+            if (failure != null)
+                throw new UncheckedIOException(failure);
+        }
+    }
+
+
+    // The loop of the background thread: gather a batch, write it, repeat until closed and drained
+    private void run() {
+        ArrayList<Log> batch = new ArrayList<>(batchSize);
+
+        try {
+            while (!closed || !queue.isEmpty()) {
+                if (gather(batch))
+                    write(batch, fsyncPolicy == FsyncPolicy.EVERY_BATCH && !batch.isEmpty());
+                batch.clear();
+
+                if (segmentBytes > Log.FILE_HEADER_BYTES
+                        && rotation.isDue(segmentBytes, startedMillis, System.currentTimeMillis()))
+                    rotate();
+            }
+
+            writer.flush();
+            if (fsyncPolicy != FsyncPolicy.NEVER)
+                file.getFD().sync();
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    // Fills the batch until it is full, the flush interval has passed since its first log, or a flush is asked for.
+    // Returns true if what was gathered must be written now.
+    private boolean gather(ArrayList<Log> batch) throws InterruptedException {
+        long deadline = 0;
+        while (batch.size() < batchSize) {
+            long timeout = batch.isEmpty() ? flushIntervalNanos : deadline - System.nanoTime();
+            Log log = timeout > 0 && !closed ? queue.poll(timeout, TimeUnit.NANOSECONDS) : queue.poll(); // no waiting once closed
+            if (log == null)
+                return !batch.isEmpty();
+            if (log == FLUSH)
+                return true;
+
+            if (batch.isEmpty())
+                deadline = System.nanoTime() + flushIntervalNanos;
+            batch.add(log);
+        }
+        return true;
+    }
+
+    private void write(ArrayList<Log> batch, boolean fsync) throws IOException {
+        PolynomialEvents.LogFlushEvent event = new PolynomialEvents.LogFlushEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long firstOffset = segmentBytes;
+        long[] offsets = new long[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Log log = batch.get(i);
+            offsets[i] = segmentBytes;
+            record.reset();
+            log.writeBody(recordWriter);
+            writer.writeInt(record.size());
+            record.writeTo(writer);
+
+            segmentBytes += Log.RECORD_HEADER_BYTES + record.size();
+        }
+        writer.flush();
+        if (fsync)
+            file.getFD().sync();
+        OperationStats.record(OperationStats.HISTORY, OperationStats.LOG, start);
+        if (event.shouldCommit()) {
+            event.logCount = batch.size();
+            event.bytes = segmentBytes - firstOffset;
+            event.fsync = fsync;
+            event.commit();
+        }
+        index(batch, offsets);
+
+        synchronized (progress) {
+            written += batch.size();
+            progress.notifyAll();
+        }
+    }
+
+    // Adds the batch to the search index, which is given up on if it fails, the history matters more
+    private void index(ArrayList<Log> batch, long[] offsets) {
+        if (search == null)
+            return;
+
+        try {
+            for (int i = 0; i < batch.size(); i++)
+                search.add(batch.get(i), fileId, offsets[i]);
+            search.flush();
+        } catch (IOException e) {
+            search = null;
+            System.err.println("History search index could not be updated: " + e.getMessage());
+        }
+    }
+
+    // Opens the history file for appending, writing the header of a new one
+    private void open() throws IOException {
+        file = new FileOutputStream(path.toFile(), true);
+        writer = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+        segmentBytes = file.getChannel().size();
+        startedMillis = System.currentTimeMillis();
+
+        if (segmentBytes == 0) {
+            fileId = ThreadLocalRandom.current().nextLong();
+            writer.writeLong(Log.FILE_MAGIC);
+            writer.writeLong(fileId);
+            writer.flush();
+            segmentBytes = Log.FILE_HEADER_BYTES;
+        } else {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+                channel.read(header, Long.BYTES);
+                fileId = header.getLong(0);
+            }
+            // Not the timestamps of the logs, which may be old if they were imported. The modification time
+            // stands in where the creation time isn't kept, so the file is never older than it should be.
+            FileTime created = Files.readAttributes(path, BasicFileAttributes.class).creationTime();
+            startedMillis = Math.min(created.toMillis(), startedMillis);
+        }
+    }
+
+    // Starts a new history file and archives the full one
+    private void rotate() throws IOException {
+        writer.flush();
+        if (fsyncPolicy != FsyncPolicy.NEVER)
+            file.getFD().sync();
+        writer.close();
+
+        HistoryRotation.detach(path);
+        open();
+        rotation.compress(path);
+    }
+
+    // Throws if the thread has stopped writing, so that nobody waits for it to take a log
+    private void checkRunning() {
+        synchronized (progress) {
+            if (failure != null)
+                throw new UncheckedIOException(failure);
+        }
+        if (!thread.isAlive())
+            throw new IllegalStateException("History writer has stopped. ");
+    }
+
+    private void fail(IOException e) {
+        synchronized (progress) {
+            if (failure == null)
+                failure = e;
+            progress.notifyAll();
+        }
+        System.err.println("History could not be written: " + e.getMessage());
+    }
+}
@@ -0,0 +1,212 @@
+package midterms.LogsPackage;
+
+import midterms.Polynomial;
+import midterms.PolynomialDivisionResult;
+import midterms.PolynomialParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Imports a history file of the old text format, where every log was its date line followed by the rendered banner,
+ * into the structured records of {@link Log}.
+ * The operands and the results are read back from the banners; a log that can't be read back is kept as text,
+ * so nothing is lost.
+ */
+public class LegacyLogImporter {
+    private static final Pattern ANSI_CODE = Pattern.compile("\u001B\\[[0-9;]*m");
+
+
+    private LegacyLogImporter() {
+    }
+
+
+    /**
+     * Imports a history file of the old text format as a new history file, all at once: the logs are written to
+     * {@code <history file>.import}, which is renamed to the history file once it is complete and on the disk.
+     * An import interrupted by a crash leaves no history file, so it starts over on the next run.
+     *
+     * @param legacyFile  the history file of the old format
+     * @param historyFile the history file to be created
+     * @return the number of logs imported
+     * @throws IOException if a file can't be read or written, or the history file already exists
+     */
+    public static int importFile(Path legacyFile, Path historyFile) throws IOException {
+        if (Files.exists(historyFile))
+            throw new FileAlreadyExistsException(historyFile.toString());
+
+        Path partial = historyFile.resolveSibling(historyFile.getFileName() + ".import");
+        Files.deleteIfExists(partial); // Left by an interrupted import
+        int imported;
+        try (HistoryWriter writer = new HistoryWriter(partial, HistoryWriter.DEFAULT_CAPACITY,
+                HistoryWriter.DEFAULT_BATCH_SIZE, HistoryWriter.DEFAULT_FLUSH_INTERVAL_MILLIS,
+                HistoryWriter.FsyncPolicy.ON_CLOSE)) {
+            imported = importLogs(legacyFile, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Files.move(partial, historyFile, StandardCopyOption.ATOMIC_MOVE);
+        return imported;
+    }
+
+
+    /**
+     * Reads every log of a history file of the old text format and appends it to a HistoryWriter.
+     *
+     * @param legacyFile the history file of the old format
+     * @param writer     where the logs are appended
+     * @return the number of logs imported
+     * @throws IOException if the file can't be read
+     */
+    public static int importLogs(Path legacyFile, HistoryWriter writer) throws IOException {
+        int imported = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(legacyFile, StandardCharsets.UTF_8)) {
+            long epochMillis = -1;
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long date = parseDate(line);
+                if (date < 0) {
+                    lines.add(line);
+                    continue;
+                }
+
+                if (epochMillis >= 0) {
+                    writer.append(toLog(lines, epochMillis));
+                    imported++;
+                }
+                epochMillis = date;
+                lines.clear();
+            }
+
+            if (epochMillis >= 0) {
+                writer.append(toLog(lines, epochMillis));
+                imported++;
+            }
+        }
+        return imported;
+    }
+
+
+    /**
+     * Reads a log back from the lines of its banner.
+     *
+     * @param lines       the lines after the date line
+     * @param epochMillis the date of the log
+     * @return the log of the operation, or a TEXT log if the banner isn't one of an operation
+     */
+    static Log toLog(List<String> lines, long epochMillis) {
+        List<String> plain = new ArrayList<>(lines.size());
+        for (String line : lines)
+            plain.add(ANSI_CODE.matcher(line).replaceAll("").trim());
+
+        try {
+            Log log = parseBanner(plain, epochMillis);
+            if (log != null)
+                return log;
+        } catch (IllegalArgumentException e) {
+            // not a banner this importer knows, kept as text below
+        }
+        return new Log(String.join("\n", lines), new Date(epochMillis));
+    }
+
+    private static Log parseBanner(List<String> lines, long epochMillis) {
+        if (lines.contains("EVALUATING POLYNOMIAL")) {
+            Polynomial polynomial = PolynomialParser.parse(valueOf(lines, "Polynomial:"));
+            String coefficient = find(lines, "Value for Coefficient '");
+            polynomial.setLiteralCoefficient(coefficient.charAt("Value for Coefficient '".length()));
+            double value = Double.parseDouble(coefficient.substring(coefficient.indexOf(':') + 1).trim());
+            double result = Double.parseDouble(valueOf(lines, "Calculated Result:"));
+            return Log.ofEvaluation(polynomial, value, result, epochMillis);
+        }
+
+        for (Log.Operation operation : List.of(Log.Operation.ADD, Log.Operation.SUBTRACT,
+                Log.Operation.MULTIPLY, Log.Operation.DIVIDE)) {
+            if (!lines.contains("RESULT OF " + operation.getTitle()))
+                continue;
+
+            // Older logs wrote the class name, "First midterms.Polynomial:"
+            Polynomial first = PolynomialParser.parse(valueOf(lines, "First ", "Polynomial:"));
+            Polynomial second = PolynomialParser.parse(valueOf(lines, "Second ", "Polynomial:"));
+            Polynomial result = operation == Log.Operation.DIVIDE
+                    ? parseDivision(lines)
+                    : PolynomialParser.parse(valueOf(lines, "Resulting ", "Polynomial:"));
+            return Log.ofOperation(operation, first, second, result, epochMillis);
+        }
+        return null;
+    }
+
+    // The inverse of PolynomialDivisionResult.toString
+    private static PolynomialDivisionResult parseDivision(List<String> lines) {
+        for (String line : lines) // The oldest logs had only a quotient, labelled as the others
+            if (line.startsWith("Resulting "))
+                return new PolynomialDivisionResult(
+                        PolynomialParser.parse(valueOf(lines, "Resulting ", "Polynomial:")), null);
+
+        int second = lines.indexOf(find(lines, "Second ")) + 1;
+        String first = lines.get(second);
+
+        if (first.startsWith("Result:")) {
+            Polynomial quotient = PolynomialParser.parse(first.substring("Result:".length()));
+            String next = second + 1 < lines.size() ? lines.get(second + 1) : "";
+            Polynomial remainder = next.startsWith("Remainder:")
+                    ? PolynomialParser.parse(next.substring("Remainder:".length()))
+                    : new Polynomial();
+            return new PolynomialDivisionResult(quotient.isEmpty() ? null : quotient, remainder);
+        }
+        if (first.equals("0"))
+            return new PolynomialDivisionResult(null, null);
+        return new PolynomialDivisionResult(PolynomialParser.parse(first), null);
+    }
+
+    private static String valueOf(List<String> lines, String prefix) {
+        return find(lines, prefix).substring(prefix.length()).trim();
+    }
+
+    private static String valueOf(List<String> lines, String prefix, String label) {
+        String line = find(lines, prefix);
+        int at = line.indexOf(label);
+        if (at < 0)
+            throw new IllegalArgumentException("No " + prefix + label + ". ");
+        return line.substring(at + label.length()).trim();
+    }
+
+    private static String find(List<String> lines, String prefix) {
+        for (String line : lines)
+            if (line.startsWith(prefix))
+                return line;
+        throw new IllegalArgumentException("No " + prefix + ". ");
+    }
+
+    // Returns the epoch millis of a date line, or -1 if the line isn't one
+    private static long parseDate(String line) {
+        if (line.isEmpty() || !Character.isLetter(line.charAt(0)))
+            return -1;
+
+        ParsePosition position = new ParsePosition(0);
+        try {
+            LocalDateTime date = LocalDateTime.from(Log.DATE_FORMAT.parse(line, position));
+            return position.getIndex() == line.length()
+                    ? date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : -1;
+        } catch (DateTimeException e) {
+            return -1;
+        }
+    }
+}
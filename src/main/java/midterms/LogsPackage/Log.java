@@ -1,38 +1,397 @@
 package midterms.LogsPackage;
 
-import java.text.SimpleDateFormat;
+import midterms.ImmutablePolynomial;
+import midterms.Polynomial;
+import midterms.PolynomialDivisionResult;
+import midterms.Term;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 /**
- * Represents a log entry with a message and a timestamp.
+ * Represents a log entry: an operation, its operands and its result, with a timestamp.
+ * <p>
+ * The history file keeps only this data, as compact binary records; the banner shown by
+ * {@link Logger#viewLog()} is rendered from it by {@link #render()} when the log is viewed.
+ * The file starts with a magic number and a random id, so a rotated file is told apart from the one before it.
+ * A record is an int length followed by the operation, the timestamp in epoch milliseconds and the operands,
+ * each Polynomial written as its literal, its number of terms and (exponent, coefficient) pairs.
  */
 public class Log {
-    String logEntry;
-    Date date;
+    /** The format of the date line shown before every log. Example: September 24, 2024 03:45 PM */
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMMM dd, yyyy hh:mm a");
+
+    /** The first bytes of a history file, "PEHIST01". */
+    static final long FILE_MAGIC = 0x5045484953543031L;
+
+    /** The bytes before the first record of a history file: the magic number, then a random id of the file. */
+    static final int FILE_HEADER_BYTES = 2 * Long.BYTES;
+
+    /** The bytes before the body of every record, holding its length. */
+    static final int RECORD_HEADER_BYTES = Integer.BYTES;
+
+    // ANSI color codes of the banners
+    private static final String RESET = "\u001B[0m";
+    private static final String GREEN = "\u001B[32m";
+    private static final String YELLOW = "\u001B[33m";
+    private static final String CYAN = "\u001B[36m";
+    private static final String BOLD = "\u001B[1m";
+    private static final String TOP = "╔══════════════════════════════════════╗";
+    private static final String BOTTOM = "╚══════════════════════════════════════╝";
+
+    /**
+     * The operation a log records.
+     */
+    public enum Operation {
+        /** A Polynomial evaluated at a value. */
+        EVALUATE("EVALUATION"),
+        /** Two Polynomials added. */
+        ADD("ADDITION"),
+        /** Two Polynomials subtracted. */
+        SUBTRACT("SUBTRACTION"),
+        /** Two Polynomials multiplied. */
+        MULTIPLY("MULTIPLICATION"),
+        /** Two Polynomials divided, the result is a quotient and a remainder. */
+        DIVIDE("DIVISION"),
+        /** Free text, for logs that are not an operation. */
+        TEXT("TEXT");
+
+        private static final Operation[] VALUES = values();
+
+        private final String title;
+
+        Operation(String title) {
+            this.title = title;
+        }
+
+        /**
+         * Gets title.
+         *
+         * @return the name shown in the banner, e.g. ADDITION
+         */
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    private final Operation operation;
+    private final long epochMillis;
+    private final Polynomial[] polynomials; // the operands then the results, entries may be null
+    private final double value;
+    private final double result;
+    private final String text;
+
 
     /**
-     * Constructs a Log object with the specified log entry and date.
+     * Constructs a Log object with the specified log entry and date, logged as text.
      *
      * @param logEntry the message to be logged
      * @param date     the date and time of the log entry
      */
     public Log(String logEntry, Date date) {
-        this.logEntry = logEntry;
-        this.date = date;
+        this(Operation.TEXT, date == null ? 0 : date.getTime(), new Polynomial[0], 0, 0, logEntry);
+    }
+
+    private Log(Operation operation, long epochMillis, Polynomial[] polynomials, double value, double result,
+                String text) {
+        this.operation = operation;
+        this.epochMillis = epochMillis;
+        this.polynomials = polynomials;
+        this.value = value;
+        this.result = result;
+        this.text = text;
+    }
+
+
+    /**
+     * Creates the log of an evaluation. The Polynomial is copied, so it may change before the log is written.
+     *
+     * @param polynomial  the evaluated Polynomial
+     * @param value       the value of its literal
+     * @param result      the result of the evaluation
+     * @param epochMillis when it was evaluated
+     * @return the log
+     */
+    public static Log ofEvaluation(Polynomial polynomial, double value, double result, long epochMillis) {
+        return new Log(Operation.EVALUATE, epochMillis, new Polynomial[] {snapshot(polynomial)}, value, result, null);
+    }
+
+
+    /**
+     * Creates the log of an operation on two Polynomials.
+     * The Polynomials are copied, so they may change before the log is written.
+     *
+     * @param operation   the operation, anything but EVALUATE and TEXT
+     * @param first       the first Polynomial
+     * @param second      the second Polynomial
+     * @param result      the resulting Polynomial, a PolynomialDivisionResult for DIVIDE
+     * @param epochMillis when the operation was performed
+     * @return the log
+     * @throws IllegalArgumentException if the operation is EVALUATE or TEXT
+     */
+    public static Log ofOperation(Operation operation, Polynomial first, Polynomial second, Polynomial result,
+                                  long epochMillis) {
+        if (operation == Operation.EVALUATE || operation == Operation.TEXT)
+            throw new IllegalArgumentException("Not an operation on two polynomials: " + operation + ". ");
+
+        Polynomial[] polynomials = operation == Operation.DIVIDE
+                ? new Polynomial[] {first, second, ((PolynomialDivisionResult) result).getQuotient(),
+                        ((PolynomialDivisionResult) result).getRemainder()}
+                : new Polynomial[] {first, second, result};
+        for (int i = 0; i < polynomials.length; i++)
+            polynomials[i] = snapshot(polynomials[i]);
+        return new Log(operation, epochMillis, polynomials, 0, 0, null);
+    }
+
+    // Copies a Polynomial of the caller, which the writer thread reads later on
+    private static Polynomial snapshot(Polynomial polynomial) {
+        return polynomial == null ? null : ImmutablePolynomial.of(polynomial);
+    }
+
+
+    /**
+     * Gets operation.
+     *
+     * @return the operation
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets epoch millis.
+     *
+     * @return when the log was made, in milliseconds since the epoch
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * Gets the operands: one Polynomial for EVALUATE, two for the others, none for TEXT.
+     *
+     * @return the operands
+     */
+    public List<Polynomial> getOperands() {
+        int count = operation == Operation.EVALUATE ? 1 : operation == Operation.TEXT ? 0 : 2;
+        return List.of(Arrays.copyOf(polynomials, count));
+    }
+
+    /**
+     * Gets the resulting Polynomial of ADD, SUBTRACT and MULTIPLY, or the quotient and remainder of DIVIDE.
+     *
+     * @return the result, or null for EVALUATE and TEXT
+     */
+    public Polynomial getResultPolynomial() {
+        if (operation == Operation.DIVIDE)
+            return new PolynomialDivisionResult(polynomials[2], polynomials[3]);
+        return polynomials.length == 3 ? polynomials[2] : null;
+    }
+
+    /**
+     * Gets value, the value of the literal of an evaluation.
+     *
+     * @return the value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Gets result, the result of an evaluation.
+     *
+     * @return the result
+     */
+    public double getResult() {
+        return result;
+    }
+
+
+    /**
+     * Renders the banner of this log, as it is shown when the operation is performed.
+     *
+     * @return the banner, with ANSI colors
+     */
+    public String render() {
+        StringBuilder banner = new StringBuilder();
+
+        switch (operation) {
+            case TEXT -> banner.append(text);
+            case EVALUATE -> {
+                Polynomial polynomial = polynomials[0];
+                header(banner, "          EVALUATING POLYNOMIAL         ");
+                banner.append(YELLOW).append("Polynomial: ").append(RESET)
+                        .append(BOLD).append(polynomial).append(RESET).append("\n");
+                banner.append(YELLOW).append("Value for Coefficient '").append(RESET)
+                        .append(BOLD).append(polynomial.getLiteralCoefficient())
+                        .append(RESET).append("': ").append(CYAN)
+                        .append(String.format("%.3f", value)).append(RESET).append("\n");
+                banner.append(YELLOW).append("Calculated Result: ").append(RESET)
+                        .append(CYAN).append(String.format("%.3f", result)).append(RESET).append("\n");
+                footer(banner, "            END OF EVALUATION         ");
+            }
+            default -> {
+                header(banner, "         RESULT OF " + operation.getTitle());
+                banner.append(YELLOW).append("First Polynomial: ").append(RESET);
+                banner.append(BOLD).append("   ").append(polynomials[0]).append(RESET).append("\n");
+                banner.append(YELLOW).append("Second Polynomial: ").append(RESET);
+                banner.append(BOLD).append("   ").append(polynomials[1]).append(RESET).append("\n");
+
+                if (operation == Operation.DIVIDE) {
+                    banner.append(BOLD).append("   ").append(getResultPolynomial()).append(RESET).append("\n");
+                } else {
+                    banner.append(YELLOW).append("Resulting Polynomial: ").append(RESET);
+                    banner.append(BOLD).append("   ").append(polynomials[2]).append(RESET).append("\n");
+                }
+                footer(banner, "             END OF RESULT           ");
+            }
+        }
+        return banner.toString();
+    }
+
+    private static void header(StringBuilder banner, String title) {
+        banner.append(GREEN).append(TOP).append("\n").append(RESET);
+        banner.append(GREEN).append(title).append(RESET).append("\n");
+        banner.append(GREEN).append(BOTTOM).append("\n").append(RESET);
+    }
+
+    private static void footer(StringBuilder banner, String title) {
+        banner.append(GREEN).append(TOP).append("\n").append(RESET);
+        banner.append(GREEN).append(title).append(RESET).append("\n");
+        banner.append(GREEN).append(BOTTOM).append(RESET);
+    }
+
+
+    /**
+     * Writes the body of the record of this log, without the length before it.
+     *
+     * @param out where the body is written
+     * @throws IOException if it can't be written
+     */
+    void writeBody(DataOutput out) throws IOException {
+        out.writeByte(operation.ordinal());
+        out.writeLong(epochMillis);
+
+        if (operation == Operation.TEXT) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            return;
+        }
+
+        for (Polynomial polynomial : polynomials)
+            writePolynomial(out, polynomial);
+        if (operation == Operation.EVALUATE) {
+            out.writeDouble(value);
+            out.writeDouble(result);
+        }
+    }
+
+    private static void writePolynomial(DataOutput out, Polynomial polynomial) throws IOException {
+        if (polynomial == null) {
+            out.writeChar(0);
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeChar(polynomial.getLiteralCoefficient());
+        out.writeInt(polynomial.getTermCount());
+        List<Term> terms = polynomial instanceof ImmutablePolynomial immutable
+                ? immutable.getTermView() : polynomial.getTerms();
+        for (Term term : terms) {
+            out.writeInt(term.getExponent());
+            out.writeDouble(term.getCoefficient());
+        }
+    }
+
+
+    /**
+     * Reads a log from the body of its record.
+     *
+     * @param body the body, from its first byte to its last
+     * @return the log
+     * @throws IllegalArgumentException if the body is not a valid record
+     */
+    static Log read(ByteBuffer body) {
+        try {
+            Operation operation = operationOf(body.get());
+            long epochMillis = body.getLong();
+
+            if (operation == Operation.TEXT) {
+                byte[] bytes = new byte[body.getInt()];
+                body.get(bytes);
+                return new Log(operation, epochMillis, new Polynomial[0], 0, 0,
+                        new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            Polynomial[] polynomials = new Polynomial[switch (operation) {
+                case EVALUATE -> 1;
+                case DIVIDE -> 4;
+                default -> 3;
+            }];
+            for (int i = 0; i < polynomials.length; i++)
+                polynomials[i] = readPolynomial(body);
+
+            double value = 0, result = 0;
+            if (operation == Operation.EVALUATE) {
+                value = body.getDouble();
+                result = body.getDouble();
+            }
+            return new Log(operation, epochMillis, polynomials, value, result, null);
+        } catch (RuntimeException e) { // BufferUnderflowException, NegativeArraySizeException
+            throw new IllegalArgumentException("Invalid history record. ", e);
+        }
+    }
+
+    /**
+     * Gets the operation of a record from its first byte.
+     *
+     * @param code the first byte of the body
+     * @return the operation
+     * @throws IllegalArgumentException if no operation has this code
+     */
+    static Operation operationOf(byte code) {
+        if (code < 0 || code >= Operation.VALUES.length)
+            throw new IllegalArgumentException("Invalid history record. ");
+        return Operation.VALUES[code];
+    }
+
+    private static Polynomial readPolynomial(ByteBuffer body) {
+        char literal = body.getChar();
+        int termCount = body.getInt();
+        if (termCount < 0)
+            return null;
+
+        ArrayList<Term> terms = new ArrayList<>(termCount);
+        for (int i = 0; i < termCount; i++) {
+            int exponent = body.getInt();
+            terms.add(new Term(body.getDouble(), literal, exponent));
+        }
+        Polynomial polynomial = new Polynomial(terms);
+        polynomial.setLiteralCoefficient(literal);
+        return polynomial;
     }
 
 
     /**
-     * Returns a string representation of the log entry, including the formatted date and time.
+     * Returns a string representation of the log entry: the formatted date and time, then the banner.
      *
      * @return a formatted string containing the date and log entry
      */
     @Override
     public String toString() {
-        // Create a SimpleDateFormat instance for the desired date and time format
-        SimpleDateFormat formatter = new SimpleDateFormat("MMMM dd, yyyy hh:mm a"); // Example: September 24, 2024 03:45 PM
-        String formattedDateTime = formatter.format(date); // Format the date and time
+        // The formatter is immutable, so it is shared instead of created for every log
+        String formattedDateTime = DATE_FORMAT.format(Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()));
 
-        return formattedDateTime + "\n" + logEntry;
+        return formattedDateTime + "\n" + render();
     }
 }
@@ -1,91 +1,287 @@
 package midterms.LogsPackage;
 
 import java.io.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
 
 
 /**
  * The Logger saves the logs from the midterms.PolynomialEvaluator class' data.
+ * Logs are written to the history file by a background {@link HistoryWriter} as they are added,
+ * so a crash loses at most the last batch, and the logs aren't kept in memory.
+ * They are read back through a {@link HistoryIndex}, a page at a time.
+ * <p>
+ * The history file holds the compact records of {@link Log}, the banners are only rendered when viewed.
+ * A history file of the old text format, Logs.txt, is imported once when there is no history file yet.
+ * The history file is rotated to compressed archives as set by {@link #setRotation}.
+ * Logs are found by {@link #searchLog} through a {@link HistorySearch} index, updated by the writer as they are added.
  */
 public class Logger {
-    private static final ArrayList<Log> logs = new ArrayList<Log>();
-    private static int logCountUponStartingProgram;
+    private static final Path LOG_FILE = Path.of("src/main/java/midterms/LogsPackage/History.bin");
+    private static final Path LEGACY_LOG_FILE = Path.of("src/main/java/midterms/LogsPackage/Logs.txt");
+    private static final int LOGS_PER_PAGE = 5;
+
+    private static Path logFile = LOG_FILE;
+    private static HistoryWriter.FsyncPolicy fsyncPolicy = HistoryWriter.FsyncPolicy.EVERY_BATCH;
+    private static HistoryRotation rotation = HistoryRotation.DEFAULT;
+    private static volatile HistoryWriter writer;
+    private static HistoryIndex index;
+    private static HistorySearch search;
+    private static boolean shutdownHookAdded;
 
 
     /**
-     * Adds a new log entry with date.
+     * Adds a new log entry with date, logged as text. Only queues it, the history file is written in the background.
      *
      * @param entryLog be logged
      * @param date     the date and time of the log entry
      */
     public static void addLog(String entryLog, Date date) {
-        Log newLog = new Log(entryLog, date);
-        logs.add(newLog);
+        addLog(new Log(entryLog, date));
     }
 
     /**
-     * Displays all log entries to the console.
+     * Adds a log. Only queues it, the history file is written in the background.
+     *
+     * @param log the log, usually from {@link Log#ofEvaluation} or {@link Log#ofOperation}
      */
-    public static void viewLog() {
-        for (Log log : logs)
-            System.out.println(log + "\n\n");
+    public static void addLog(Log log) {
+        writer().append(log);
     }
 
+    /**
+     * Displays all log entries to the console, the archived ones first, then those of the history file.
+     */
+    public static void viewLog() {
+        try (HistoryReader history = openHistory()) {
+            while (history.hasNext())
+                printLog(history.next());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
     /**
-     * Reads log data from the specified file and populates the logs list.
-     * Each log entry consists of a date followed by the log content.
+     * Displays the log entries to the console a page at a time, oldest first.
+     * Archives are only decompressed when the pages reach them, and only the page shown is read from the history file.
+     *
+     * @param reader a BufferedReader to read user input
      */
-    public static void ReadData() {
-        try (BufferedReader reader = new BufferedReader(new FileReader("src/main/java/midterms/LogsPackage/Logs.txt"))) {
-            String line;
-            int lineCount = 1;
-            StringBuilder logsList = new StringBuilder();
-            Date date = null;
-
-            while ((line = reader.readLine()) != null) {
-                // Parse date if line is the one containing the date (1st, 11th, 21st, etc.)
-                if (lineCount % 10 == 1) {
-                    SimpleDateFormat dateFormat = new SimpleDateFormat("MMMM dd, yyyy hh:mm a");
-                    date = dateFormat.parse(line);
-                }
-
-                // Append logs or store the log entry
-                retrieveLogs(logsList, lineCount, date, line);
-                lineCount++;
+    public static void viewLog(BufferedReader reader) {
+        try (HistoryReader history = openHistory()) {
+            if (!history.hasNext()) {
+                System.out.println("No history yet.");
+                return;
             }
-        } catch (IOException | ParseException e) {
-            throw new RuntimeException(e);
+
+            while (true) {
+                for (int i = 0; i < LOGS_PER_PAGE && history.hasNext(); i++)
+                    printLog(history.next());
+                if (!history.hasNext())
+                    break;
+
+                System.out.print("Press <Enter> for the next page, or q to stop: ");
+                String answer = reader.readLine();
+                if (answer == null || answer.trim().equalsIgnoreCase("q"))
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Displays the log entries matching a query to the console.
+     *
+     * @param query the query, in the text form of {@link HistoryQuery}
+     * @throws IllegalArgumentException if the query can't be parsed
+     */
+    public static void searchLog(String query) {
+        HistoryQuery parsed = HistoryQuery.parse(query);
+        try {
+            HistorySearch.Matches matches = openSearch().search(parsed);
+            for (long position = 0; position < matches.size(); position += LOGS_PER_PAGE)
+                matches.read(position, LOGS_PER_PAGE).forEach(Logger::printLog);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        logCountUponStartingProgram = logs.size();
     }
 
-    private static void retrieveLogs(StringBuilder logsList, int lineCount, Date date, String line) throws ParseException {
-        if (lineCount % 10 == 0){
-            logsList.append(line).append("\n");
-            logs.add(new Log(logsList.toString(), date));
-            logsList.setLength(0); // clear the stringBuilder
+    /**
+     * Displays the log entries matching a query to the console a page at a time, oldest first.
+     * Only the logs of the page shown are read from the history.
+     *
+     * @param query  the query, in the text form of {@link HistoryQuery}
+     * @param reader a BufferedReader to read user input
+     * @throws IllegalArgumentException if the query can't be parsed
+     */
+    public static void searchLog(String query, BufferedReader reader) {
+        HistoryQuery parsed = HistoryQuery.parse(query);
+        try {
+            HistorySearch.Matches matches = openSearch().search(parsed);
+            System.out.println("Found " + matches.size() + (matches.size() == 1 ? " log." : " logs."));
+
+            for (long position = 0; position < matches.size(); ) {
+                matches.read(position, LOGS_PER_PAGE).forEach(Logger::printLog);
+                position += LOGS_PER_PAGE;
+                if (position >= matches.size())
+                    break;
+
+                System.out.print("Press <Enter> for the next page, or q to stop: ");
+                String answer = reader.readLine();
+                if (answer == null || answer.trim().equalsIgnoreCase("q"))
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        else
-            logsList.append(line).append("\n");
     }
 
 
     /**
-     * Appends and Saves any new log entries to the specified file.
+     * Starts the background writer of the history file and brings its index up to date.
+     * The logs are not loaded in memory, only what was appended since the last index refresh is walked.
+     * Logs.txt is imported first if there is no history yet, then a record left unfinished by a crash is dropped.
+     * The import only creates the history file once it is complete, so a crash during it loses nothing.
      */
-    public static void saveData() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("src/main/java/midterms/LogsPackage/Logs.txt", true))) {
-            for (int i = logCountUponStartingProgram; i < logs.size(); i++) {
-                writer.write(logs.get(i).toString());
-                writer.newLine();
+    public static synchronized void ReadData() {
+        try {
+            if (writer == null && !Files.exists(logFile) && Files.exists(LEGACY_LOG_FILE)) {
+                int imported = LegacyLogImporter.importFile(LEGACY_LOG_FILE, logFile);
+                System.out.println("Imported " + imported + " logs from " + LEGACY_LOG_FILE + ".");
             }
+            if (writer == null)
+                index().truncateIncompleteRecord();
+
+            writer();
+            index().refresh();
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Writes any queued log entries to the history file and stops the background writer.
+     * The writer is stopped even if writing failed, so the next log starts a new one.
+     *
+     * @throws UncheckedIOException if writing failed
+     */
+    public static synchronized void saveData() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } finally {
+                writer = null;
+            }
         }
     }
 
+
+    /**
+     * Sets the history file. Logs queued for the previous file are written first.
+     *
+     * @param path the history file
+     */
+    public static synchronized void setLogFile(Path path) {
+        saveData();
+        logFile = path;
+        index = null;
+        search = null;
+    }
+
+
+    /**
+     * Sets when the history file is forced to the disk. Logs queued under the previous policy are written first.
+     *
+     * @param policy the fsync policy
+     */
+    public static synchronized void setFsyncPolicy(HistoryWriter.FsyncPolicy policy) {
+        saveData();
+        fsyncPolicy = policy;
+    }
+
+
+    /**
+     * Sets when the history file is rotated and how long its archives are kept.
+     * Logs queued under the previous rotation are written first.
+     *
+     * @param historyRotation the rotation, or {@link HistoryRotation#NEVER}
+     */
+    public static synchronized void setRotation(HistoryRotation historyRotation) {
+        saveData();
+        rotation = historyRotation;
+    }
+
+
+    // Writes what is queued, indexes it, and lists the archives
+    private static synchronized HistoryReader openHistory() throws IOException {
+        writer().sync();
+        HistoryIndex history = index();
+        history.refresh();
+        return new HistoryReader(history, logFile);
+    }
+
+    // Writes what is queued, which updates the search index too
+    private static synchronized HistorySearch openSearch() {
+        writer().sync();
+        if (search == null)
+            throw new IllegalStateException("History search index is unavailable. ");
+        return search;
+    }
+
+    private static synchronized HistoryIndex index() {
+        if (index == null)
+            index = new HistoryIndex(logFile);
+        return index;
+    }
+
+    // Renders the log, the history file holds only its data
+    private static void printLog(Log log) {
+        System.out.println(log);
+        System.out.println("\n\n");
+    }
+
+
+    // Returns the running writer without locking, or starts it
+    private static HistoryWriter writer() {
+        HistoryWriter current = writer;
+        return current != null ? current : startWriter();
+    }
+
+    // Opens the search index and catches it up with the history, before the writer appends to it.
+    // The history is still written without it if it can't be.
+    private static synchronized HistorySearch search() {
+        try {
+            if (search == null)
+                search = new HistorySearch(logFile);
+            HistoryIndex history = index();
+            history.refresh();
+            search.catchUp(history);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("History search index could not be opened: " + e.getMessage());
+            search = null;
+        }
+        return search;
+    }
+
+    // Starts the writer and the shutdown hook that drains it, unless another thread just did
+    private static synchronized HistoryWriter startWriter() {
+        if (writer == null) {
+            try {
+                writer = new HistoryWriter(logFile, HistoryWriter.DEFAULT_CAPACITY, HistoryWriter.DEFAULT_BATCH_SIZE,
+                        HistoryWriter.DEFAULT_FLUSH_INTERVAL_MILLIS, fsyncPolicy, rotation, search());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            if (!shutdownHookAdded) {
+                Runtime.getRuntime().addShutdownHook(new Thread(Logger::saveData, "history-drain"));
+                shutdownHookAdded = true;
+            }
+        }
+        return writer;
+    }
 }
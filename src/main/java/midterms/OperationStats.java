@@ -0,0 +1,169 @@
+package midterms;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The latency of every stage of the operations of a session: parsing, arithmetic, rendering, logging,
+ * kept in a {@link LatencyHistogram} per operation and stage.
+ * <p>
+ * Stages are timed with {@link System#nanoTime()} around the call, and recording never blocks.
+ * {@link #getReport()} prints the counts and the p50, p99 and p999 latencies, and
+ * {@link #writePrometheus(Path)} writes them in the Prometheus text format for a scraper.
+ */
+public class OperationStats {
+    /** The operation of the stages that aren't of one operation, like parsing. */
+    public static final String POLYNOMIAL = "polynomial";
+
+    /** The operation of writing the history file, by its background thread. */
+    public static final String HISTORY = "history";
+
+    /** The parsing of a Polynomial. */
+    public static final String PARSE = "parse";
+
+    /** The computation of the result. */
+    public static final String ARITHMETIC = "arithmetic";
+
+    /** The rendering of the banner of the result. */
+    public static final String RENDER = "render";
+
+    /** The queueing of a log, or the writing of a batch of logs to the history file. */
+    public static final String LOG = "log";
+
+    private static final String METRIC = "polynomial_stage_latency_seconds";
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    // Sorted by operation and stage, for the report
+    private static final ConcurrentSkipListMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+
+
+    private OperationStats() {
+    }
+
+
+    /**
+     * Records the latency of a stage of an operation.
+     *
+     * @param operation the operation, e.g. "add", or {@link #POLYNOMIAL} for what isn't of one operation
+     * @param stage     the stage, e.g. {@link #ARITHMETIC}
+     * @param startNanos when the stage started, from {@link System#nanoTime()}
+     */
+    public static void record(String operation, String stage, long startNanos) {
+        histogram(operation, stage).record(System.nanoTime() - startNanos);
+    }
+
+
+    /**
+     * Gets the histogram of a stage of an operation, created empty the first time.
+     *
+     * @param operation the operation
+     * @param stage     the stage
+     * @return the histogram, which may be recorded to directly
+     */
+    public static LatencyHistogram histogram(String operation, String stage) {
+        String key = operation + " " + stage;
+        LatencyHistogram histogram = HISTOGRAMS.get(key);
+        return histogram != null ? histogram : HISTOGRAMS.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+
+
+    /**
+     * Gets the report of the session: a line per operation and stage with its count and latencies.
+     *
+     * @return the report, or a line saying nothing was recorded
+     */
+    public static String getReport() {
+        if (HISTOGRAMS.isEmpty())
+            return "No operations recorded yet.";
+
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT, "%-12s %-11s %8s %12s %12s %12s %12s%n",
+                "operation", "stage", "count", "p50", "p99", "p999", "max"));
+        for (Map.Entry<String, LatencyHistogram> entry : HISTOGRAMS.entrySet()) {
+            String[] name = entry.getKey().split(" ");
+            LatencyHistogram histogram = entry.getValue();
+            report.append(String.format(Locale.ROOT, "%-12s %-11s %8d %12s %12s %12s %12s%n", name[0], name[1],
+                    histogram.getCount(), format(histogram.getValueAtPercentile(PERCENTILES[0])),
+                    format(histogram.getValueAtPercentile(PERCENTILES[1])),
+                    format(histogram.getValueAtPercentile(PERCENTILES[2])), format(histogram.getMax())));
+        }
+        return report.toString().stripTrailing();
+    }
+
+
+    /**
+     * Gets the report on a single line, as the batch mode writes a line per command.
+     *
+     * @return the count and latencies of every operation and stage, separated by semicolons
+     */
+    public static String getSummary() {
+        List<String> parts = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : HISTOGRAMS.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            parts.add(String.format(Locale.ROOT, "%s count=%d p50=%s p99=%s p999=%s",
+                    entry.getKey().replace(' ', '/'), histogram.getCount(),
+                    format(histogram.getValueAtPercentile(PERCENTILES[0])),
+                    format(histogram.getValueAtPercentile(PERCENTILES[1])),
+                    format(histogram.getValueAtPercentile(PERCENTILES[2]))));
+        }
+        return parts.isEmpty() ? "No operations recorded yet." : String.join("; ", parts);
+    }
+
+
+    /**
+     * Writes the latencies as a Prometheus summary to a file, replaced at once so a scraper never reads half of it.
+     *
+     * @param file the file, e.g. a textfile collector's
+     * @throws IOException if the file can't be written
+     */
+    public static void writePrometheus(Path file) throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+            writer.write("# HELP " + METRIC + " Latency of a stage of a Polynomial operation.\n");
+            writer.write("# TYPE " + METRIC + " summary\n");
+            for (Map.Entry<String, LatencyHistogram> entry : HISTOGRAMS.entrySet()) {
+                String[] name = entry.getKey().split(" ");
+                String labels = "operation=\"" + name[0] + "\",stage=\"" + name[1] + "\"";
+                LatencyHistogram histogram = entry.getValue();
+
+                for (double percentile : PERCENTILES) {
+                    String quantile = BigDecimal.valueOf(percentile).movePointLeft(2).stripTrailingZeros().toPlainString();
+                    writer.write(String.format(Locale.ROOT, "%s{%s,quantile=\"%s\"} %.9f\n", METRIC, labels,
+                            quantile, histogram.getValueAtPercentile(percentile) / 1e9));
+                }
+                writer.write(String.format(Locale.ROOT, "%s_sum{%s} %.9f\n", METRIC, labels, histogram.getSum() / 1e9));
+                writer.write(String.format(Locale.ROOT, "%s_count{%s} %d\n", METRIC, labels, histogram.getCount()));
+            }
+        }
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    /**
+     * Forgets every latency recorded.
+     */
+    public static void reset() {
+        HISTOGRAMS.clear();
+    }
+
+
+    // Nanoseconds in the unit that suits them
+    private static String format(long nanos) {
+        if (nanos < 1_000)
+            return nanos + " ns";
+        if (nanos < 1_000_000)
+            return String.format(Locale.ROOT, "%.1f us", nanos / 1e3);
+        if (nanos < 1_000_000_000)
+            return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+        return String.format(Locale.ROOT, "%.2f s", nanos / 1e9);
+    }
+}
@@ -0,0 +1,151 @@
+package midterms;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates a Polynomial over large arrays of values using a ForkJoinPool.
+ * The array is split into cache-sized chunks and each chunk runs the same batch kernel as
+ * {@link Polynomial#evaluate(double[], double[])}, so the results match the sequential path element for element.
+ * Arrays shorter than the sequential cutoff are evaluated on the calling thread.
+ */
+public class ParallelEvaluator implements AutoCloseable {
+    /** The default number of values below which the evaluation stays sequential. */
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 1 << 16;
+
+    // 8192 values and 8192 results take 128 KiB, which fits in the L2 cache of most cores
+    private static final int CHUNK_SIZE = 1 << 13;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int sequentialCutoff;
+
+
+    /**
+     * Constructs a ParallelEvaluator that runs on the common ForkJoinPool with the default cutoff.
+     */
+    public ParallelEvaluator() {
+        this.pool = ForkJoinPool.commonPool();
+        this.ownsPool = false;
+        this.sequentialCutoff = DEFAULT_SEQUENTIAL_CUTOFF;
+    }
+
+
+    /**
+     * Constructs a ParallelEvaluator with its own ForkJoinPool.
+     *
+     * @param parallelism the number of worker threads
+     * @param sequentialCutoff the number of values below which the evaluation stays sequential
+     * @throws IllegalArgumentException if parallelism is less than 1 or sequentialCutoff is negative
+     */
+    public ParallelEvaluator(int parallelism, int sequentialCutoff) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1. ");
+        if (sequentialCutoff < 0)
+            throw new IllegalArgumentException("Sequential cutoff must not be negative. ");
+
+        this.pool = new ForkJoinPool(parallelism);
+        this.ownsPool = true;
+        this.sequentialCutoff = sequentialCutoff;
+    }
+
+
+    /**
+     * Gets parallelism.
+     *
+     * @return the number of worker threads of the pool
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+
+    /**
+     * Gets sequential cutoff.
+     *
+     * @return the number of values below which the evaluation stays sequential
+     */
+    public int getSequentialCutoff() {
+        return sequentialCutoff;
+    }
+
+
+    /**
+     * Evaluates the Polynomial at every value of the array.
+     *
+     * @param polynomial the Polynomial to be evaluated
+     * @param values the values of the literal
+     * @param results where the results are written, at the same indices as the values
+     * @throws IllegalArgumentException if results is shorter than values
+     */
+    public void evaluate(Polynomial polynomial, double[] values, double[] results) {
+        evaluate(polynomial, values, results, 0, values.length);
+    }
+
+
+    /**
+     * Evaluates the Polynomial at every value in the range [from, to) of the array.
+     *
+     * @param polynomial the Polynomial to be evaluated
+     * @param values the values of the literal
+     * @param results where the results are written, at the same indices as the values
+     * @param from the first index, inclusive
+     * @param to the last index, exclusive
+     * @throws IllegalArgumentException if results is shorter than values
+     */
+    public void evaluate(Polynomial polynomial, double[] values, double[] results, int from, int to) {
+        if (results.length < values.length)
+            throw new IllegalArgumentException("Results array is shorter than the values array. ");
+
+        HornerEvaluator kernel = polynomial.evaluator();
+
+        if (to - from < Math.max(sequentialCutoff, CHUNK_SIZE) || pool.getParallelism() == 1)
+            kernel.evaluate(values, results, from, to);
+        else
+            pool.invoke(new EvaluationTask(kernel, values, results, from, to));
+    }
+
+
+    /**
+     * Shuts down the pool if this ParallelEvaluator created it.
+     */
+    @Override
+    public void close() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+
+    // Splits its range in halves until it is no larger than a chunk. Never serialized, like any ForkJoinTask in use
+    @SuppressWarnings("serial")
+    private static class EvaluationTask extends RecursiveAction {
+        private final HornerEvaluator kernel;
+        private final double[] values;
+        private final double[] results;
+        private final int from;
+        private final int to;
+
+        EvaluationTask(HornerEvaluator kernel, double[] values, double[] results, int from, int to) {
+            this.kernel = kernel;
+            this.values = values;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                kernel.evaluate(values, results, from, to);
+                return;
+            }
+
+            // Split on a chunk boundary so the leaves line up with the cache-sized chunks
+            int middle = from + ((to - from) / 2 + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE;
+            if (middle >= to)
+                middle = from + (to - from) / 2;
+            invokeAll(new EvaluationTask(kernel, values, results, from, middle),
+                      new EvaluationTask(kernel, values, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package midterms;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of parsed Polynomials, keyed on their text, which evicts the least recently used.
+ * <p>
+ * The cache is split in segments, each a {@link LinkedHashMap} in access order behind its own lock,
+ * so threads parsing different texts rarely wait for each other. A miss is parsed outside the lock.
+ * The Polynomials kept are {@link ImmutablePolynomial}s, shared by every caller of the same text.
+ * <p>
+ * {@link #getShared()} is the cache of the program, its capacity is set with {@link #setSharedCapacity(int)}.
+ */
+public class ParseCache {
+    /** The default number of Polynomials kept by the shared cache. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int SEGMENT_COUNT = 16;
+    private static final int MINIMUM_SEGMENT_CAPACITY = 16; // Smaller caches have a single segment, to stay exact
+
+    private static volatile ParseCache shared = new ParseCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final Segment[] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+
+    /**
+     * Constructs an empty ParseCache.
+     *
+     * @param capacity the number of Polynomials kept at most, 0 to parse every text
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public ParseCache(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Parse cache capacity must be at least 0. ");
+
+        this.capacity = capacity;
+        int segmentCount = capacity >= SEGMENT_COUNT * MINIMUM_SEGMENT_CAPACITY ? SEGMENT_COUNT : 1;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) // Spread the remainder so the capacities add up exactly
+            segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0));
+    }
+
+
+    /**
+     * Gets the cache of the program.
+     *
+     * @return the shared cache
+     */
+    public static ParseCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Replaces the cache of the program by an empty one.
+     *
+     * @param capacity the number of Polynomials kept at most, 0 to parse every text
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public static void setSharedCapacity(int capacity) {
+        shared = new ParseCache(capacity);
+    }
+
+
+    /**
+     * Gets the Polynomial of a text, parsed only if it isn't in the cache.
+     * Texts that only differ by their leading and trailing blanks share their Polynomial.
+     *
+     * @param text the String form of the Polynomial
+     * @return the parsed Polynomial, an ImmutablePolynomial shared with other callers unless the capacity is 0
+     * @throws PolynomialParseException if the text doesn't follow the syntax or has more than one literal
+     */
+    public Polynomial parse(String text) {
+        String key = text.strip();
+        if (capacity == 0) {
+            misses.incrementAndGet();
+            return PolynomialParser.parse(key);
+        }
+
+        Segment segment = segments[segments.length == 1 ? 0 : (spread(key.hashCode()) & (segments.length - 1))];
+        Polynomial polynomial;
+        synchronized (segment) {
+            polynomial = segment.get(key);
+        }
+        if (polynomial != null) {
+            hits.incrementAndGet();
+            return polynomial;
+        }
+
+        misses.incrementAndGet();
+        Polynomial parsed = ImmutablePolynomial.of(PolynomialParser.parse(key));
+        synchronized (segment) {
+            polynomial = segment.putIfAbsent(key, parsed); // Another thread may have parsed it meanwhile
+        }
+        return polynomial != null ? polynomial : parsed;
+    }
+
+
+    /**
+     * Gets capacity.
+     *
+     * @return the number of Polynomials kept at most
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of Polynomials in the cache.
+     *
+     * @return the size
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments)
+            synchronized (segment) {
+                size += segment.size();
+            }
+        return size;
+    }
+
+    /**
+     * Gets hit count.
+     *
+     * @return the number of texts found in the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets miss count.
+     *
+     * @return the number of texts parsed
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets eviction count.
+     *
+     * @return the number of Polynomials evicted to make room for others
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+
+    /**
+     * Gets the counters on one line, for the stats.
+     *
+     * @return the size, capacity, hits, misses and evictions
+     */
+    public String getSummary() {
+        return "parse cache size=" + size() + "/" + capacity + " hits=" + getHitCount() + " misses=" + getMissCount()
+                + " evictions=" + getEvictionCount();
+    }
+
+
+    /**
+     * Empties the cache. The counters are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments)
+            synchronized (segment) {
+                segment.clear();
+            }
+    }
+
+
+    // Mixes the high bits of the hash into the low ones, which pick the segment
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+
+    // A LinkedHashMap in access order which evicts its eldest entry beyond its capacity, guarded by its own monitor.
+    // Never serialized, it doesn't leave the cache
+    @SuppressWarnings("serial")
+    private final class Segment extends LinkedHashMap<String, Polynomial> {
+        private final int segmentCapacity;
+
+        Segment(int segmentCapacity) {
+            super(16, 0.75f, true);
+            this.segmentCapacity = segmentCapacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Polynomial> eldest) {
+            if (size() <= segmentCapacity)
+                return false;
+            evictions.incrementAndGet();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package midterms;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates a Polynomial over a binary file of little-endian doubles, writing the results to a file of the same layout.
+ * Both files are memory-mapped with {@link FileChannel#map} one window at a time, so files larger than
+ * the 2 GiB limit of a single mapping are supported, and the windows are evaluated in parallel on a ForkJoinPool.
+ * <p>
+ * Values are copied from the mapped input to the mapped output through two arrays of 512 doubles per window, which
+ * stay in the L1 cache, so the batch kernel of {@link Polynomial#evaluate(double[], double[])} runs on them and the
+ * results match it element for element. A window is never copied whole, and nothing is boxed.
+ * The progress counts the values of every block as it is written, not only of the finished windows.
+ */
+public class PointFileEvaluator implements AutoCloseable {
+    /** The default number of values mapped by each task. */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 20;
+
+    // Values moved between the mapped buffers and the kernel at once, 4 KiB each way
+    private static final int BLOCK_SIZE = 512;
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final PrintStream progress;
+    private final int windowSize;
+
+
+    /**
+     * Constructs a PointFileEvaluator that runs on the common ForkJoinPool and doesn't report progress.
+     */
+    public PointFileEvaluator() {
+        this.pool = ForkJoinPool.commonPool();
+        this.ownsPool = false;
+        this.progress = null;
+        this.windowSize = DEFAULT_WINDOW_SIZE;
+    }
+
+
+    /**
+     * Constructs a PointFileEvaluator with its own ForkJoinPool.
+     *
+     * @param parallelism the number of worker threads
+     * @param progress where the progress and the throughput are reported, or null
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public PointFileEvaluator(int parallelism, PrintStream progress) {
+        this(parallelism, progress, DEFAULT_WINDOW_SIZE);
+    }
+
+
+    // Allows smaller windows, so tests can span several of them
+    PointFileEvaluator(int parallelism, PrintStream progress, int windowSize) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1. ");
+        if (windowSize < 1)
+            throw new IllegalArgumentException("Window size must be at least 1. ");
+
+        this.pool = new ForkJoinPool(parallelism);
+        this.ownsPool = true;
+        this.progress = progress;
+        this.windowSize = windowSize;
+    }
+
+
+    /**
+     * Evaluates the Polynomial at every value of the input file. The output file is created or replaced.
+     *
+     * @param polynomial the Polynomial to be evaluated
+     * @param input a file of little-endian doubles
+     * @param output where the results are written, as little-endian doubles in the same order
+     * @return the number of values evaluated
+     * @throws IOException if a file can't be read, written or mapped
+     * @throws IllegalArgumentException if the size of the input is not a multiple of 8 bytes
+     */
+    public long evaluate(Polynomial polynomial, Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            if (size % Double.BYTES != 0)
+                throw new IllegalArgumentException("Point file size is not a multiple of 8 bytes. ");
+
+            long valueCount = size / Double.BYTES;
+            if (size > 0) // Size the output up front instead of letting every mapping extend it
+                out.write(ByteBuffer.allocate(1), size - 1);
+            long windowCount = (valueCount + windowSize - 1) / windowSize;
+            LongAdder evaluated = new LongAdder();
+            long start = System.nanoTime();
+
+            Thread reporter = startReporter(evaluated, valueCount, start);
+            try {
+                pool.invoke(new WindowTask(polynomial.evaluator(), in, out, valueCount, evaluated, 0, windowCount));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                if (reporter != null)
+                    reporter.interrupt();
+            }
+
+            if (progress != null)
+                progress.println(summary("Evaluated", valueCount, valueCount, System.nanoTime() - start));
+            return valueCount;
+        }
+    }
+
+
+    /**
+     * Shuts down the pool if this PointFileEvaluator created it.
+     */
+    @Override
+    public void close() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+
+    // Prints the progress every interval until interrupted, or returns null if there is nowhere to print
+    private Thread startReporter(LongAdder evaluated, long total, long start) {
+        if (progress == null)
+            return null;
+
+        Thread reporter = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(PROGRESS_INTERVAL_MILLIS);
+                    progress.println(summary("Progress:", evaluated.sum(), total, System.nanoTime() - start));
+                }
+            } catch (InterruptedException e) {
+                // evaluation finished
+            }
+        }, "point-file-progress");
+        reporter.setDaemon(true);
+        reporter.start();
+        return reporter;
+    }
+
+    private static String summary(String prefix, long done, long total, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        double percent = total == 0 ? 100 : 100.0 * done / total;
+        double valuesPerSecond = seconds > 0 ? done / seconds : 0;
+        return String.format(Locale.ROOT, "%s %d of %d values (%.1f%%) in %.3f s, %.1f million values/s, %.0f MB/s",
+                prefix, done, total, percent, seconds, valuesPerSecond / 1e6, valuesPerSecond * 2 * Double.BYTES / 1e6);
+    }
+
+
+    // Splits its range of windows in halves until a single window is left, then maps and evaluates it.
+    // Never serialized, like any ForkJoinTask in use
+    @SuppressWarnings("serial")
+    private class WindowTask extends RecursiveAction {
+        private final HornerEvaluator kernel;
+        private final FileChannel in;
+        private final FileChannel out;
+        private final long valueCount;
+        private final LongAdder evaluated;
+        private final long fromWindow;
+        private final long toWindow;
+
+        WindowTask(HornerEvaluator kernel, FileChannel in, FileChannel out, long valueCount, LongAdder evaluated,
+                   long fromWindow, long toWindow) {
+            this.kernel = kernel;
+            this.in = in;
+            this.out = out;
+            this.valueCount = valueCount;
+            this.evaluated = evaluated;
+            this.fromWindow = fromWindow;
+            this.toWindow = toWindow;
+        }
+
+        @Override
+        protected void compute() {
+            if (toWindow - fromWindow > 1) {
+                long middle = fromWindow + (toWindow - fromWindow) / 2;
+                invokeAll(new WindowTask(kernel, in, out, valueCount, evaluated, fromWindow, middle),
+                          new WindowTask(kernel, in, out, valueCount, evaluated, middle, toWindow));
+                return;
+            }
+            if (toWindow == fromWindow)
+                return;
+
+            long first = fromWindow * windowSize;
+            int length = (int) Math.min(windowSize, valueCount - first);
+            long offset = first * Double.BYTES;
+            long bytes = (long) length * Double.BYTES;
+
+            try {
+                DoubleBuffer values = in.map(FileChannel.MapMode.READ_ONLY, offset, bytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                DoubleBuffer results = out.map(FileChannel.MapMode.READ_WRITE, offset, bytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+
+                double[] valueBlock = new double[BLOCK_SIZE];
+                double[] resultBlock = new double[BLOCK_SIZE];
+                for (int index = 0; index < length; index += BLOCK_SIZE) {
+                    int blockLength = Math.min(BLOCK_SIZE, length - index);
+                    values.get(index, valueBlock, 0, blockLength);
+                    kernel.evaluate(valueBlock, resultBlock, 0, blockLength);
+                    results.put(index, resultBlock, 0, blockLength);
+                    evaluated.add(blockLength);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -1,18 +1,33 @@
 package midterms;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A Polynomial designed for the PolynomialEvaluator program.
  * This Polynomial depends on the operations of the Term class.
  * Designed to support only one literal coefficient.
  * Supports method chaining.
+ * <p>
+ * The terms are kept in one of two forms, switched automatically based on the fill ratio:
+ * a dense form, a {@code double[]} of coefficients indexed by exponent with O(1) lookup and update,
+ * and a sparse form, a list of Terms in descending exponent order for polynomials with large gaps
+ * (i.e., x^1000 + 1) or negative exponents.
  */
 public class Polynomial {
-    private ArrayList<Term> terms;
+    private static final double DENSE_FILL_RATIO = 0.25; // A Term costs about 4 times more memory than a double
+    private static final double SPARSE_FILL_RATIO = 0.125; // Lower than DENSE_FILL_RATIO, so the form doesn't flip back and forth
+
+    private ArrayList<Term> terms; // Sparse form: non-zero terms in descending exponent order, null in dense form
+    private double[] coefficients; // Dense form: coefficients indexed by exponent, null in sparse form
+    private int termCount; // Number of non-zero terms
     private int degree;
     private char literalCoefficient; // Since this Polynomial only supports one variable
+    private HornerEvaluator evaluator; // Cached evaluation kernel, rebuilt after the terms change
+    private long fingerprint; // Cached by getFingerprint, 0 until computed and after the terms change
 
 
     /**
@@ -40,12 +55,18 @@ public class Polynomial {
      * @param polynomial the Polynomial to be constructed from
      */
     public Polynomial(Polynomial polynomial) {
-        // Defensive copy for Reference objects
-        this.terms = new ArrayList<>(polynomial.terms);
+        // Defensive copy for Reference objects, the Terms themselves are never modified so they can be shared
+        if (polynomial.coefficients != null)
+            this.coefficients = Arrays.copyOf(polynomial.coefficients, polynomial.degree + 1);
+        else
+            this.terms = new ArrayList<>(polynomial.terms);
 
         // Primitive types
+        this.termCount = polynomial.termCount;
         this.degree = polynomial.degree;
         this.literalCoefficient = polynomial.literalCoefficient;
+        this.evaluator = polynomial.evaluator; // immutable, safe to share
+        this.fingerprint = polynomial.fingerprint;
     }
 
     /**
@@ -57,22 +78,44 @@ public class Polynomial {
         if (terms == null)
             throw new IllegalArgumentException();
 
+        initialize(terms);
+    }
+
+
+    // Builds the terms from a list in any order, combining terms with the same exponent
+    private void initialize(ArrayList<Term> terms) {
+        this.terms = new ArrayList<>();
+        this.coefficients = null;
+        this.termCount = 0;
+        this.degree = 0;
+        this.evaluator = null;
+        this.fingerprint = 0;
+
         if (terms.isEmpty()) {
-            this.terms = new ArrayList<>();
-            this.degree = 0;
             this.literalCoefficient = 0;
             return;
         }
 
         literalCoefficient = terms.getFirst().getLiteral();
 
-        this.terms = new ArrayList<>();
         ArrayList<Term> toBeAddedTerms = new ArrayList<>(terms); // to avoid sorting the passed terms
         Collections.sort(toBeAddedTerms);
-        degree = toBeAddedTerms.getFirst().getExponent(); // the degree of a polynomial is the exponent of the first term (when sorted)
 
-        for (Term term : toBeAddedTerms) // Deep copy
-            addTerm(new Term(term));
+        // The terms are sorted, so equal exponents are next to each other
+        for (Term term : toBeAddedTerms) {
+            if (literalIsNotTheSame(term))
+                throw new IllegalArgumentException("Inconsistent literal coefficients. ");
+
+            Term lastTerm = this.terms.isEmpty() ? null : this.terms.getLast();
+            if (lastTerm != null && lastTerm.getExponent() == term.getExponent())
+                this.terms.set(this.terms.size() - 1, lastTerm.getSumWith(term));
+            else
+                this.terms.add(new Term(term)); // Deep copy
+        }
+
+        this.terms.removeIf(term -> term.getCoefficient() == 0);
+        updateSparseSummary();
+        fitForm();
     }
 
 
@@ -82,7 +125,7 @@ public class Polynomial {
      * @return true if the Polynomial has no terms yet, else false.
      */
     public boolean isEmpty() {
-        return this.terms.isEmpty();
+        return termCount == 0;
     }
 
 
@@ -104,31 +147,92 @@ public class Polynomial {
         return literalCoefficient;
     }
 
+
     /**
-     * Gets terms.
+     * Gets the number of non-zero terms.
      *
-     * @return the terms
+     * @return the number of terms
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+
+    /**
+     * Gets the coefficient of the term with the given exponent.
+     * Runs in constant time in the dense form and in logarithmic time in the sparse form.
+     *
+     * @param exponent the exponent
+     * @return the coefficient, or 0 if there is no term with the exponent
+     */
+    public double getCoefficient(int exponent) {
+        if (coefficients != null)
+            return (exponent >= 0 && exponent < coefficients.length) ? coefficients[exponent] : 0;
+
+        int index = getIndexByExponent(exponent);
+        return index >= 0 ? terms.get(index).getCoefficient() : 0;
+    }
+
+
+    /**
+     * Gets the lowest exponent of the terms if it is negative.
+     *
+     * @return the lowest exponent, or 0 if there is no negative exponent
+     */
+    int getLowestExponent() {
+        if (coefficients != null || terms.isEmpty())
+            return 0;
+        return Math.min(terms.getLast().getExponent(), 0);
+    }
+
+
+    /**
+     * Writes the coefficient of each exponent into the buffer at index (exponent - offset).
+     *
+     * @param buffer the buffer, covering the exponents from offset up to the degree
+     * @param offset the exponent stored at index 0, at most the lowest exponent
+     */
+    void copyCoefficientsInto(double[] buffer, int offset) {
+        if (coefficients != null)
+            System.arraycopy(coefficients, 0, buffer, -offset, degree + 1);
+        else
+            for (Term term : terms)
+                buffer[term.getExponent() - offset] = term.getCoefficient();
+    }
+
+
+    /**
+     * Gets a copy of the terms, in descending exponent order.
+     *
+     * @return the terms, which may be modified
      */
     public ArrayList<Term> getTerms() {
-        return terms;
+        ArrayList<Term> copy = new ArrayList<>(termCount);
+        for (Term term : termList())
+            copy.add(new Term(term));
+        return copy;
     }
 
     /**
-     * Sets terms.
+     * Sets terms. The terms may come in any order; terms with the same exponent are combined.
      *
      * @param terms the terms
      */
     public void setTerms(ArrayList<Term> terms) {
-        this.terms = terms;
+        if (terms == null)
+            throw new IllegalArgumentException();
+
+        initialize(terms);
     }
 
     /**
      * Sets degree.
      *
      * @param degree the degree
+     * @deprecated the degree is maintained from the terms, this method has no effect.
      */
+    @Deprecated
     public void setDegree(int degree) {
-        this.degree = degree;
     }
 
     /**
@@ -138,6 +242,7 @@ public class Polynomial {
      */
     public void setLiteralCoefficient(char literalCoefficient) {
         this.literalCoefficient = literalCoefficient;
+        this.fingerprint = 0;
     }
 
 
@@ -157,22 +262,33 @@ public class Polynomial {
 
     /**
      * Adds a Term in the Polynomial. Chains it to the other method.
+     * Runs in amortized constant time in the dense form.
      *
      * @param newTerm the term to be added in the Polynomial
      */
     public void addTerm(Term newTerm) {
-        if (literalIsNotTheSame(newTerm))
-            throw new IllegalArgumentException("Inconsistent literal coefficients. ");
+        if (literalIsNotTheSame(newTerm)) {
+            if (!isEmpty() || literalCoefficient != 0)
+                throw new IllegalArgumentException("Inconsistent literal coefficients. ");
+            literalCoefficient = newTerm.getLiteral(); // An empty Polynomial takes the literal of its first term
+        }
+
+        if (newTerm.getCoefficient() == 0)
+            return;
 
-        Term currentTerm = this.getTermByExponent(newTerm.getExponent());
+        evaluator = null;
+        fingerprint = 0;
+        int exponent = newTerm.getExponent();
 
-        if (currentTerm != null) { // Update if the polynomial already has a term with similar exponent
-            currentTerm.setCoefficient(currentTerm.getCoefficient() + newTerm.getCoefficient());
-            if (currentTerm.getCoefficient() == 0) // remove if coefficient = 0
-                terms.remove(currentTerm);
+        if (coefficients != null && exponent >= 0 && !growthTooSparse(exponent))
+            addToDenseForm(exponent, newTerm.getCoefficient());
+        else {
+            if (coefficients != null)
+                toSparseForm();
+            addToSparseForm(newTerm);
         }
-        else
-            terms.add(newTerm);
+
+        fitForm();
     }
 
     // Method to check if this Term and the newTerm have the same literal
@@ -180,124 +296,523 @@ public class Polynomial {
         return newTerm.getLiteral() != this.literalCoefficient;
     }
 
-    // Returns the Term which has the given exponent
-    private Term getTermByExponent(int exponent) {
+    // Checks if growing the dense form up to the exponent would leave it too sparse
+    private boolean growthTooSparse(int exponent) {
+        return exponent >= coefficients.length && termCount + 1 < SPARSE_FILL_RATIO * (exponent + 1.0);
+    }
+
+    private void addToDenseForm(int exponent, double coefficient) {
+        if (exponent >= coefficients.length) // Grow geometrically so that addTerm stays amortized constant time
+            coefficients = Arrays.copyOf(coefficients, Math.max(exponent + 1, 2 * coefficients.length));
+
+        double currentCoefficient = coefficients[exponent];
+        double updatedCoefficient = currentCoefficient + coefficient;
+        coefficients[exponent] = updatedCoefficient;
+
+        if (currentCoefficient == 0 && updatedCoefficient != 0)
+            termCount++;
+        else if (currentCoefficient != 0 && updatedCoefficient == 0)
+            termCount--;
+
+        if (updatedCoefficient != 0 && exponent > degree)
+            degree = exponent;
+        else // The leading term may have cancelled out
+            while (degree > 0 && coefficients[degree] == 0)
+                degree--;
+    }
+
+    private void addToSparseForm(Term newTerm) {
+        int index = getIndexByExponent(newTerm.getExponent());
+
+        if (index >= 0) { // Update if the polynomial already has a term with similar exponent
+            // Replace rather than mutate, the Term may be shared with a copy of this Polynomial
+            Term updatedTerm = terms.get(index).getSumWith(newTerm);
+            if (updatedTerm.getCoefficient() == 0) // remove if coefficient = 0
+                terms.remove(index);
+            else
+                terms.set(index, updatedTerm);
+        }
+        else
+            terms.add(-index - 1, new Term(newTerm));
+
+        updateSparseSummary();
+    }
+
+    // Updates the term count and the degree from the sparse form
+    private void updateSparseSummary() {
+        termCount = terms.size();
+        degree = terms.isEmpty() ? 0 : terms.getFirst().getExponent(); // the terms are sorted
+    }
+
+    // Checks if the terms are kept in the dense form
+    boolean isDense() {
+        return coefficients != null;
+    }
+
+    // Switches to the form that suits the current fill ratio
+    private void fitForm() {
+        if (coefficients == null) {
+            boolean hasNegativeExponent = !terms.isEmpty() && terms.getLast().getExponent() < 0;
+            if (!terms.isEmpty() && !hasNegativeExponent && termCount >= DENSE_FILL_RATIO * (degree + 1.0))
+                toDenseForm();
+        } else if (termCount < SPARSE_FILL_RATIO * (degree + 1.0))
+            toSparseForm();
+    }
+
+    private void toDenseForm() {
+        coefficients = new double[degree + 1];
         for (Term term : terms)
-            if (term.getExponent() == exponent)
-                return term;
+            coefficients[term.getExponent()] = term.getCoefficient();
+        terms = null;
+    }
+
+    private void toSparseForm() {
+        terms = termList();
+        coefficients = null;
+    }
+
+    // Returns the terms in descending exponent order, the list must not be modified in the sparse form
+    final ArrayList<Term> termList() {
+        if (coefficients == null)
+            return terms;
+
+        ArrayList<Term> list = new ArrayList<>(termCount);
+        for (int exponent = degree; exponent >= 0; exponent--)
+            if (coefficients[exponent] != 0)
+                list.add(new Term(coefficients[exponent], literalCoefficient, exponent));
+        return list;
+    }
+
+    // Returns the index of the Term which has the given exponent,
+    // or (-(insertion point) - 1) if there is none, like Collections.binarySearch
+    private int getIndexByExponent(int exponent) {
+        int low = 0;
+        int high = terms.size() - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleExponent = terms.get(middle).getExponent();
+
+            if (middleExponent > exponent) // descending order
+                low = middle + 1;
+            else if (middleExponent < exponent)
+                high = middle - 1;
+            else
+                return middle;
+        }
 
-        return null;
+        return -(low + 1);
     }
 
 
     /**
      * This Polynomial will be increased by another Polynomial.
-     * Collect all terms and make a new Polynomial with it.
+     * Runs in linear time by merging the terms of both, which are already in descending exponent order.
      * @param other the other Polynomial to be added to this object
      */
     public Polynomial addTo(Polynomial other) {
-        // Collect all terms and make a new Polynomial with it.
-        ArrayList<Term> allTerms = new ArrayList<>(this.terms);
-        allTerms.addAll(other.terms);
-
-        return new Polynomial(allTerms);
+        PolynomialEvents.AddEvent event = new PolynomialEvents.AddEvent();
+        event.begin();
+        Polynomial result = merge(other, false);
+        if (event.shouldCommit()) {
+            event.set(this, other, result);
+            event.algorithm = mergeAlgorithmWith(other);
+            event.commit();
+        }
+        return result;
     }
 
 
     /**
      * This Polynomial will be decreased by another Polynomial.
-     * Collect all terms and make a new Polynomial with it.
+     * Runs in linear time by merging the terms of both, which are already in descending exponent order.
      * @param other the other Polynomial to be subtracted to this object
      */
     public Polynomial decreaseBy(Polynomial other) {
-        // Collect all terms and make a new Polynomial with it.
-        ArrayList<Term> allTerms = new ArrayList<>(this.terms);
+        PolynomialEvents.SubtractEvent event = new PolynomialEvents.SubtractEvent();
+        event.begin();
+        Polynomial result = merge(other, true);
+        if (event.shouldCommit()) {
+            event.set(this, other, result);
+            event.algorithm = mergeAlgorithmWith(other);
+            event.commit();
+        }
+        return result;
+    }
+
+
+    // The algorithm merge uses with the other Polynomial, for the events
+    private String mergeAlgorithmWith(Polynomial other) {
+        return this.coefficients != null && other.coefficients != null
+                ? PolynomialEvents.DENSE : PolynomialEvents.MERGE;
+    }
+
+    // Adds or subtracts the other Polynomial with a single pass over both
+    private Polynomial merge(Polynomial other, boolean subtract) {
+        char literal = literalWith(other);
+
+        if (this.coefficients != null && other.coefficients != null) {
+            // Both are dense, add the arrays element by element
+            double[] result = Arrays.copyOf(this.coefficients, Math.max(this.degree, other.degree) + 1);
+            for (int exponent = 0; exponent <= other.degree; exponent++)
+                result[exponent] = subtract
+                        ? result[exponent] - other.coefficients[exponent]
+                        : result[exponent] + other.coefficients[exponent];
+            return fromCoefficients(result, literal);
+        }
+
+        ArrayList<Term> thisTerms = this.termList();
+        ArrayList<Term> otherTerms = other.termList();
+        ArrayList<Term> merged = new ArrayList<>(thisTerms.size() + otherTerms.size());
+
+        // Two pointers, always take the term with the higher exponent first
+        int i = 0;
+        int j = 0;
+        while (i < thisTerms.size() && j < otherTerms.size()) {
+            Term thisTerm = thisTerms.get(i);
+            Term otherTerm = otherTerms.get(j);
+
+            if (thisTerm.getExponent() > otherTerm.getExponent()) {
+                merged.add(thisTerm);
+                i++;
+            } else if (thisTerm.getExponent() < otherTerm.getExponent()) {
+                merged.add(subtract ? otherTerm.withCoefficient(-otherTerm.getCoefficient()) : otherTerm);
+                j++;
+            } else {
+                double coefficient = subtract
+                        ? thisTerm.getCoefficient() - otherTerm.getCoefficient()
+                        : thisTerm.getCoefficient() + otherTerm.getCoefficient();
+                if (coefficient != 0)
+                    merged.add(thisTerm.withCoefficient(coefficient));
+                i++;
+                j++;
+            }
+        }
+
+        for (; i < thisTerms.size(); i++)
+            merged.add(thisTerms.get(i));
+        for (; j < otherTerms.size(); j++) {
+            Term otherTerm = otherTerms.get(j);
+            merged.add(subtract ? otherTerm.withCoefficient(-otherTerm.getCoefficient()) : otherTerm);
+        }
+
+        return fromSortedTerms(merged, literal);
+    }
+
+    // Returns the literal of the result of an operation with the other Polynomial
+    char literalWith(Polynomial other) {
+        if (this.isEmpty())
+            return other.literalCoefficient;
+        if (!other.isEmpty() && other.literalCoefficient != this.literalCoefficient)
+            throw new IllegalArgumentException("Inconsistent literal coefficients. ");
+        return this.literalCoefficient;
+    }
+
 
-        // The terms of the subtrahend should be multiplied to -1 before adding
-        for (Term term : other.terms) {
-            Term negatedTerm = term.withCoefficient(-1 * term.getCoefficient());
-            allTerms.add(negatedTerm);
+    /**
+     * Constructs a Polynomial from coefficients indexed by exponent.
+     * The array is owned by the new Polynomial and must not be modified afterwards.
+     *
+     * @param coefficients the coefficients, indexed by exponent
+     * @param literal the literal of the Polynomial
+     * @return the new Polynomial
+     */
+    static Polynomial fromCoefficients(double[] coefficients, char literal) {
+        Polynomial polynomial = new Polynomial();
+        polynomial.literalCoefficient = literal;
+
+        int degree = coefficients.length - 1;
+        while (degree > 0 && coefficients[degree] == 0)
+            degree--;
+
+        int termCount = 0;
+        for (int exponent = 0; exponent <= degree; exponent++)
+            if (coefficients[exponent] != 0)
+                termCount++;
+
+        if (termCount > 0) {
+            polynomial.terms = null;
+            polynomial.coefficients = coefficients;
+            polynomial.termCount = termCount;
+            polynomial.degree = degree;
+            polynomial.fitForm();
         }
+        return polynomial;
+    }
+
 
-        return new Polynomial(allTerms);
+    /**
+     * Constructs a Polynomial from non-zero terms already in descending exponent order.
+     * The list is owned by the new Polynomial and must not be modified afterwards.
+     *
+     * @param terms the terms, in descending exponent order
+     * @param literal the literal of the Polynomial
+     * @return the new Polynomial
+     */
+    static Polynomial fromSortedTerms(ArrayList<Term> terms, char literal) {
+        Polynomial polynomial = new Polynomial();
+        polynomial.literalCoefficient = literal;
+        polynomial.terms = terms;
+        polynomial.updateSparseSummary();
+        polynomial.fitForm();
+        return polynomial;
     }
 
 
     /**
-     * This Polynomial will be multiplied by another Polynomial
+     * Returns the coefficients indexed by exponent, from 0 up to the degree.
+     * The array is a copy and may be modified.
+     *
+     * @return the coefficients
+     * @throws IllegalStateException if the Polynomial has a negative exponent
+     */
+    double[] toCoefficientArray() {
+        if (coefficients != null)
+            return Arrays.copyOf(coefficients, degree + 1);
+
+        if (!terms.isEmpty() && terms.getLast().getExponent() < 0)
+            throw new IllegalStateException("Polynomial has negative exponents. ");
+
+        double[] array = new double[Math.max(degree, 0) + 1];
+        for (Term term : terms)
+            array[term.getExponent()] = term.getCoefficient();
+        return array;
+    }
+
+
+    /**
+     * This Polynomial will be multiplied by another Polynomial.
+     * Dense operands are multiplied over their coefficient arrays by {@link PolynomialMultiplier},
+     * which uses Karatsuba's method for long operands and an FFT convolution for very long ones.
      * @param other the other Polynomial to be multiplied to this object
      */
     public Polynomial multiplyBy(Polynomial other) {
-        ArrayList<Term> results = new ArrayList<>();
-
-        // Distribute each term, collect all products and make a new Polynomial of that list
-        for (Term thisTerm : this.terms)
-            for (Term otherTerm : other.terms)
-                results.add(thisTerm.getProductWith(otherTerm));
+        PolynomialEvents.MultiplyEvent event = new PolynomialEvents.MultiplyEvent();
+        event.begin();
+        Polynomial result;
+
+        if (this.coefficients != null && other.coefficients != null) {
+            char literal = literalWith(other);
+            double[] product = PolynomialMultiplier.multiply(this.toCoefficientArray(), other.toCoefficientArray(),
+                    event);
+            result = fromCoefficients(product, literal);
+        } else {
+            ArrayList<Term> results = new ArrayList<>();
+
+            // Distribute each term, collect all products and make a new Polynomial of that list
+            ArrayList<Term> otherTerms = other.termList();
+            for (Term thisTerm : this.termList())
+                for (Term otherTerm : otherTerms)
+                    results.add(thisTerm.getProductWith(otherTerm));
+
+            result = new Polynomial(results);
+            event.algorithm = PolynomialEvents.DISTRIBUTE;
+        }
 
-        return new Polynomial(results);
+        if (event.shouldCommit()) {
+            event.set(this, other, result);
+            event.commit();
+        }
+        return result;
     }
 
 
     /**
-     * This Polynomial will be divided by another Polynomial
+     * This Polynomial will be divided by another Polynomial.
+     * Uses {@link PolynomialDivider}: iterative long division, or Newton's iteration when
+     * both the quotient and the divisor are long.
      * @param other the other Polynomial to be divided to this object
      */
     public PolynomialDivisionResult divideBy(Polynomial other) {
         if (other.isEmpty())
             throw new IllegalArgumentException("Divisor is 0. ");
 
-        if (this.isEmpty() || cannotPerformDivision(this, other))
+        if (this.isEmpty() || this.degree < other.degree) { // Cannot perform basic division
+            PolynomialEvents.DivideEvent event = new PolynomialEvents.DivideEvent();
+            if (event.shouldCommit()) {
+                event.set(this, other, null);
+                event.algorithm = PolynomialEvents.TRIVIAL;
+                event.commit();
+            }
             return new PolynomialDivisionResult(null, this); // return 0, with the remainder of this
+        }
 
-        ArrayList<Term> quotients = new ArrayList<>();
-        return divisionRecursion(this, other, quotients);
+        return PolynomialDivider.divide(this, other);
     }
 
 
-    // Method for doing the repeating process of long division for polynomials;
-    // Divide the first term of both, then multiply the quotient to the divisor,
-    // then subtract it to the dividend, then repeat.
-    private PolynomialDivisionResult divisionRecursion(Polynomial dividend, Polynomial divisor, ArrayList<Term> quotients) {
-        if (cannotPerformDivision(dividend, divisor))
-            return new PolynomialDivisionResult(new Polynomial(quotients), dividend);
+    /**
+     * Evaluates the Polynomial given the value of its literal/s.
+     * Uses Horner's scheme; the result agrees with the sum of {@link Term#evaluate(double)}
+     * over all terms within the bound documented in {@link HornerEvaluator}.
+     *
+     * @param value the value
+     * @return the result
+     */
+    public double evaluate(double value) {
+        PolynomialEvents.EvaluateEvent event = new PolynomialEvents.EvaluateEvent();
+        event.begin();
+        HornerEvaluator evaluator = evaluator();
+        double result = evaluator.evaluate(value);
+        if (event.shouldCommit()) {
+            event.set(this, 1, evaluator.getAlgorithm(1));
+            event.commit();
+        }
+        return result;
+    }
 
-        Term dividendLeadTerm = dividend.terms.getFirst();
-        Term divisorLeadTerm = divisor.terms.getFirst();
-        Term quotient = dividendLeadTerm.getQuotientWith(divisorLeadTerm);
-        quotients.add(quotient);
+    /**
+     * Evaluates the Polynomial at many values of its literal in one call.
+     * Each result is identical to calling {@link #evaluate(double)} on the same value,
+     * but the whole batch runs in a tight primitive loop (SIMD when the Vector API is available).
+     *
+     * @param values the values of the literal
+     * @param results where the results are written, at the same indices as the values
+     * @throws IllegalArgumentException if results is shorter than values
+     */
+    public void evaluate(double[] values, double[] results) {
+        if (results.length < values.length)
+            throw new IllegalArgumentException("Results array is shorter than the values array. ");
+
+        PolynomialEvents.EvaluateEvent event = new PolynomialEvents.EvaluateEvent();
+        event.begin();
+        HornerEvaluator evaluator = evaluator();
+        evaluator.evaluate(values, results, 0, values.length);
+        if (event.shouldCommit()) {
+            event.set(this, values.length, evaluator.getAlgorithm(values.length));
+            event.commit();
+        }
+    }
+
+
+    /**
+     * Evaluates the Polynomial at many values of its literal using all cores of the common ForkJoinPool.
+     * Use {@link ParallelEvaluator} directly to configure the parallelism and the sequential cutoff.
+     *
+     * @param values the values of the literal
+     * @param results where the results are written, at the same indices as the values
+     * @throws IllegalArgumentException if results is shorter than values
+     */
+    public void evaluateParallel(double[] values, double[] results) {
+        new ParallelEvaluator().evaluate(this, values, results);
+    }
+
+
+    /**
+     * Evaluates the Polynomial at every value of the given stream.
+     * The values are processed in batches, preserving their order.
+     *
+     * @param values the values of the literal
+     * @return a stream of the results
+     */
+    public DoubleStream evaluate(DoubleStream values) {
+        HornerEvaluator.BatchSpliterator batches = evaluator().new BatchSpliterator(values.spliterator());
+        return StreamSupport.doubleStream(batches, values.isParallel()).onClose(values::close);
+    }
+
+
+    /**
+     * Gets the fingerprint of the Polynomial: a 64-bit hash of its literal and of the exponent and coefficient
+     * of every term, the same for every Polynomial with the same terms whatever their form or how they were built.
+     * The literal of a constant doesn't count. It is computed once, and again only after the terms change.
+     *
+     * @return the fingerprint, never 0
+     */
+    public long getFingerprint() {
+        long current = fingerprint;
+        if (current == 0) {
+            current = mix(canonicalLiteral());
+            if (coefficients != null) {
+                for (int exponent = degree; exponent >= 0; exponent--)
+                    if (coefficients[exponent] != 0)
+                        current = mix(current, exponent, coefficients[exponent]);
+            } else
+                for (Term term : terms)
+                    current = mix(current, term.getExponent(), term.getCoefficient());
+            fingerprint = current = (current == 0) ? 1 : current;
+        }
+        return current;
+    }
 
-        ArrayList<Term> queue = new ArrayList<>(); // the terms which to be subtracted in the current dividend
+    // The literal that counts for equality, none for a constant
+    private char canonicalLiteral() {
+        return degree > 0 || getLowestExponent() < 0 ? literalCoefficient : 0;
+    }
 
-        for (Term term : divisor.terms)
-            queue.add(quotient.getProductWith(term));
+    // Adds a term to the fingerprint
+    private static long mix(long fingerprint, int exponent, double coefficient) {
+        return mix(mix(fingerprint * 31 + exponent) ^ Double.doubleToLongBits(coefficient));
+    }
 
-        // Update the dividend and perform division again
-        Polynomial toBeSubtracted = new Polynomial(queue);
-        Polynomial newDividend = dividend.decreaseBy(toBeSubtracted);
-        return divisionRecursion(newDividend, divisor, quotients);
+    // The finalizer of MurmurHash3, so every bit of the input affects every bit of the hash
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
     }
 
-    // Method to decide if it can still divide
-    private boolean cannotPerformDivision(Polynomial dividend, Polynomial divisor) {
-        // Cannot perform basic division
-        return dividend.degree < divisor.degree || dividend.terms.size() < divisor.terms.size();
+
+    // Returns the cached evaluation kernel, building it if the terms changed since the last evaluation
+    HornerEvaluator evaluator() {
+        HornerEvaluator current = evaluator;
+        if (current == null)
+            evaluator = current = (coefficients != null)
+                    ? HornerEvaluator.fromCoefficients(coefficients, degree)
+                    : HornerEvaluator.fromTerms(terms);
+        return current;
     }
 
 
     /**
-     * Evaluates the Polynomial given the value of its literal/s.
+     * Checks if the other object is a Polynomial with the same terms, whatever their form or how they were built,
+     * so an {@link ImmutablePolynomial} equals the Polynomial it was made from.
+     * The fingerprints are compared first, so unequal Polynomials are told apart in constant time once their
+     * fingerprints are known. The literal of a constant doesn't count, and a {@link PolynomialDivisionResult}
+     * only equals another.
+     * A Polynomial used as a key must not be modified afterwards, {@link ImmutablePolynomial} makes sure of it.
      *
-     * @param value the value
-     * @return the result
+     * @param o the object to be compared for equality
+     * @return true if the other object is a Polynomial with the same literal and terms, false otherwise
      */
-    public double evaluate(double value) {
-        double result = 0;
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Polynomial other)
+                || (this instanceof PolynomialDivisionResult) != (other instanceof PolynomialDivisionResult))
+            return false;
+        if (this.getFingerprint() != other.getFingerprint() || this.termCount != other.termCount
+                || this.degree != other.degree || this.canonicalLiteral() != other.canonicalLiteral())
+            return false;
+
+        if (this.coefficients != null && other.coefficients != null) {
+            for (int exponent = 0; exponent <= degree; exponent++)
+                if (Double.doubleToLongBits(this.coefficients[exponent])
+                        != Double.doubleToLongBits(other.coefficients[exponent]))
+                    return false;
+            return true;
+        }
 
-        for (Term term : terms)
-            result += term.evaluate(value);
+        ArrayList<Term> thisTerms = this.termList();
+        ArrayList<Term> otherTerms = other.termList();
+        for (int i = 0; i < termCount; i++)
+            if (thisTerms.get(i).getExponent() != otherTerms.get(i).getExponent()
+                    || Double.doubleToLongBits(thisTerms.get(i).getCoefficient())
+                    != Double.doubleToLongBits(otherTerms.get(i).getCoefficient()))
+                return false;
+        return true;
+    }
 
-        return result;
+
+    /**
+     * Gets the hash code of the Polynomial, from its fingerprint.
+     *
+     * @return the hash code, the same for Polynomials that are equal
+     */
+    @Override
+    public int hashCode() {
+        long current = getFingerprint();
+        return (int) (current ^ (current >>> 32));
     }
 
 
@@ -306,9 +821,11 @@ public class Polynomial {
      */
     @Override
     public String toString() {
-        if (terms.isEmpty())
+        if (isEmpty())
             return "0";
 
+        ArrayList<Term> terms = termList();
+
         StringBuilder polynomial = new StringBuilder();
 
         // Handle the first term (no need for positive sign before the first term).
@@ -0,0 +1,152 @@
+package midterms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Division engine for Polynomials.
+ * Runs long division iteratively on a mutable primitive buffer holding the remainder:
+ * each step divides the leading coefficients and subtracts the scaled divisor in place,
+ * so there is no recursion and no allocation per quotient term.
+ * <p>
+ * When both the quotient and the divisor are long, long division costs O(n·m), so the quotient is computed
+ * instead from the power series inverse of the reversed divisor, found with Newton's iteration.
+ * Its cost is then a few multiplications through {@link PolynomialMultiplier}.
+ * <p>
+ * Both algorithms run in {@link PolynomialReducer}, which prepares the divisor once;
+ * this class holds their configuration and the helpers they share.
+ */
+public class PolynomialDivider {
+    /** The default length from which the quotient and the divisor are divided with Newton's iteration. */
+    public static final int DEFAULT_NEWTON_THRESHOLD = 256;
+
+    // Relative size under which the coefficients of the remainder at or above the divisor's degree count as zero
+    private static final double REMAINDER_TOLERANCE = 1e-9;
+
+    private static volatile int newtonThreshold = DEFAULT_NEWTON_THRESHOLD;
+
+    private PolynomialDivider() {
+    }
+
+
+    /**
+     * Gets newton threshold.
+     *
+     * @return the length from which the quotient and the divisor are divided with Newton's iteration
+     */
+    public static int getNewtonThreshold() {
+        return newtonThreshold;
+    }
+
+
+    /**
+     * Sets newton threshold.
+     * Both the quotient and the divisor need at least this many coefficients for the fast division to be used.
+     *
+     * @param threshold the length from which the quotient and the divisor are divided with Newton's iteration
+     * @throws IllegalArgumentException if threshold is less than 1
+     */
+    public static void setNewtonThreshold(int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("Newton threshold must be at least 1. ");
+        newtonThreshold = threshold;
+    }
+
+
+    /**
+     * Divides the dividend by the divisor through a {@link PolynomialReducer} used once.
+     * The dividend must have a degree at least as high as the divisor's, and the divisor must not be empty.
+     *
+     * @param dividend the Polynomial to be divided
+     * @param divisor the Polynomial to divide by
+     * @return the quotient and the remainder
+     * @throws IllegalArgumentException if the literals of both Polynomials are different
+     */
+    static PolynomialDivisionResult divide(Polynomial dividend, Polynomial divisor) {
+        return new PolynomialReducer(divisor).divmod(dividend);
+    }
+
+
+    // Extends g, the power series inverse of f modulo x^g.length, to the inverse modulo x^length; f[0] must not be 0.
+    // Newton's iteration doubles the number of correct coefficients each round: g <- g - g (f g - 1).
+    // Since f g - 1 vanishes below the current precision, only the new upper coefficients are computed,
+    // so the lower ones never change and the result doesn't depend on the lengths asked for before.
+    static double[] inverse(double[] f, double[] g, int length) {
+        for (int precision = g.length; precision < length; ) {
+            int next = Math.min(2 * precision, length);
+
+            double[] error = truncatedProduct(Arrays.copyOf(f, Math.min(f.length, next)), g, next);
+            double[] correction = truncatedProduct(g, Arrays.copyOfRange(error, precision, next), next - precision);
+
+            double[] extended = Arrays.copyOf(g, next);
+            for (int i = precision; i < next; i++)
+                extended[i] = -correction[i - precision];
+            g = extended;
+            precision = next;
+        }
+
+        return g;
+    }
+
+    // Returns the product of a and b modulo x^length
+    static double[] truncatedProduct(double[] a, double[] b, int length) {
+        return Arrays.copyOf(PolynomialMultiplier.multiply(a, b), length);
+    }
+
+    // Returns the first length coefficients of the array in reversed order (the highest exponent first)
+    static double[] reverse(double[] coefficients, int length) {
+        double[] reversed = new double[length];
+        for (int i = 0; i < length; i++)
+            reversed[i] = coefficients[coefficients.length - 1 - i];
+        return reversed;
+    }
+
+    static boolean isIntegral(double[] coefficients) {
+        for (double coefficient : coefficients)
+            if (coefficient != Math.rint(coefficient))
+                return false;
+        return true;
+    }
+
+    static double maximumMagnitude(double[] coefficients) {
+        double maximum = 0;
+        for (double coefficient : coefficients)
+            maximum = Math.max(maximum, Math.abs(coefficient));
+        return maximum;
+    }
+
+    // Checks the coefficients of the remainder from the given exponent up count as zero relative to the scale.
+    // Written so that NaN, or an infinite scale, is never negligible.
+    static boolean isNegligible(double[] remainder, int from, double scale) {
+        if (!Double.isFinite(scale))
+            return false;
+        for (int exponent = from; exponent < remainder.length; exponent++)
+            if (!(Math.abs(remainder[exponent]) <= REMAINDER_TOLERANCE * scale))
+                return false;
+        return true;
+    }
+
+    static boolean isFinite(double[] coefficients) {
+        for (double coefficient : coefficients)
+            if (!Double.isFinite(coefficient))
+                return false;
+        return true;
+    }
+
+
+    // Builds the remainder from the buffer, keeping the exponents from lowest up to highest
+    static Polynomial remainderPolynomial(double[] buffer, int lowest, int highest, char literal) {
+        if (lowest >= 0) {
+            double[] coefficients = new double[Math.max(highest + 1, 1)];
+            for (int exponent = lowest; exponent <= highest; exponent++)
+                coefficients[exponent] = buffer[exponent - lowest];
+            return Polynomial.fromCoefficients(coefficients, literal);
+        }
+
+        ArrayList<Term> terms = new ArrayList<>();
+        for (int exponent = highest; exponent >= lowest; exponent--)
+            if (buffer[exponent - lowest] != 0)
+                terms.add(new Term(buffer[exponent - lowest], literal, exponent));
+        return Polynomial.fromSortedTerms(terms, literal);
+    }
+}
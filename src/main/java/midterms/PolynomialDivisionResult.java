@@ -1,5 +1,6 @@
 package midterms;
 
+import java.util.Objects;
 
 /**
  * A Polynomial with a Quotient and Result
@@ -57,6 +58,33 @@ public class PolynomialDivisionResult extends Polynomial {
     }
 
 
+    /**
+     * Checks if the other object is a PolynomialDivisionResult with an equal quotient and remainder.
+     *
+     * @param o the object to be compared for equality
+     * @return true if both the quotients and the remainders are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof PolynomialDivisionResult other))
+            return false;
+        return Objects.equals(quotient, other.quotient) && Objects.equals(remainder, other.remainder);
+    }
+
+
+    /**
+     * Gets the hash code of the quotient and the remainder.
+     *
+     * @return the hash code, the same for results that are equal
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(quotient) + Objects.hashCode(remainder);
+    }
+
+
     /**
      * @return the String representation for this Quotient of Polynomial
      */
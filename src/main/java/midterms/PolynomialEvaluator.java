@@ -1,12 +1,23 @@
 package midterms;
 
+import midterms.LogsPackage.Log;
 import midterms.LogsPackage.Logger;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Locale;
 
 /**
  * The {@code PolynomialEvaluator} class allows users to evaluate polynomials
@@ -14,6 +25,10 @@ import java.util.Date;
  * and division.
  */
 public class PolynomialEvaluator {
+    private static Path metricsFile; // where the stats are dumped for Prometheus, null for nowhere
+
+    private boolean historyFailed; // once the history can't be written, the session goes on without it
+
 
     private void showMenu() {
         System.out.print(Constants.BOLD + """
@@ -29,10 +44,11 @@ public class PolynomialEvaluator {
             |  4. ✖️ MULTIPLY 2 Polynomials       |
             |  5. ➗ DIVIDE 2 Polynomials         |
             |  6. 📜 HISTORY                      |
-            |  7. ❌ QUIT                         |
+            |  7. 📊 STATS                        |
+            |  8. ❌ QUIT                         |
             ---------------------------------------
             
-            Enter your choice (1-7): \s""" + Constants.RESET);
+            Enter your choice (1-8): \s""" + Constants.RESET);
     }
 
     /**
@@ -50,7 +66,13 @@ public class PolynomialEvaluator {
         runPolynomialOperations(reader);
 
         // Save data from this program execution
-        Logger.saveData();
+        try {
+            Logger.saveData();
+        } catch (UncheckedIOException | IllegalStateException e) {
+            if (!historyFailed)
+                reportHistoryFailure(e);
+        }
+        writeMetrics();
     }
 
 
@@ -72,8 +94,9 @@ public class PolynomialEvaluator {
                     case 3 -> performOperation(3, "SUBTRACT", "SUBTRACTION", reader);
                     case 4 -> performOperation(4, "MULTIPLY", "MULTIPLICATION", reader);
                     case 5 -> performOperation(5, "DIVIDE", "DIVISION", reader);
-                    case 6 -> Logger.viewLog(); // History
-                    case 7 -> userWantsMore = false; // Quit
+                    case 6 -> viewHistory(reader); // History
+                    case 7 -> showStats();
+                    case 8 -> userWantsMore = false; // Quit
                 }
             } catch (IllegalArgumentException e) {
                 System.out.println(Constants.MULTI_LITERAL_ERROR_MESSAGE);
@@ -106,6 +129,49 @@ public class PolynomialEvaluator {
     }
 
 
+    /**
+     * Shows the latency of every stage of the operations of this session, and dumps it to the metrics file if any.
+     */
+    private void showStats() {
+        System.out.println(Constants.GREEN + "[OPTION 7] : STATS." + Constants.RESET);
+        System.out.println(OperationStats.getReport());
+        System.out.println(ParseCache.getShared().getSummary());
+        if (EvaluationCache.getShared().getCapacity() > 0)
+            System.out.println(EvaluationCache.getShared().getSummary());
+        writeMetrics();
+    }
+
+
+    /**
+     * Shows the history, all of it or the logs matching a search.
+     *
+     * @param reader a BufferedReader to read user input
+     */
+    private void viewHistory(BufferedReader reader) {
+        System.out.println(Constants.GREEN + "[OPTION 6] : HISTORY." + Constants.RESET);
+        System.out.println("Search e.g. op=add; operand=5x^2 + 3x + 1; result=27; from=2024-09-24; to=2024-09-25 18:00");
+        System.out.print("Enter a search, or press <Enter> for the whole history: ");
+
+        String query;
+        try {
+            query = reader.readLine();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            if (query == null || query.isBlank())
+                Logger.viewLog(reader);
+            else
+                Logger.searchLog(query, reader);
+        } catch (UncheckedIOException | IllegalStateException e) {
+            System.out.println(Constants.RED + "History could not be read: " + e.getMessage() + Constants.RESET);
+        } catch (IllegalArgumentException e) {
+            System.out.println(Constants.RED + "Invalid search: " + e.getMessage() + Constants.RESET);
+        }
+    }
+
+
     /**
      * Performs the specified polynomial operation based on user input.
      *
@@ -140,12 +206,15 @@ public class PolynomialEvaluator {
      * @return the resulting polynomial after performing the operation
      */
     private Polynomial getResult(Polynomial polynomial1, Polynomial polynomial2, String operation) {
-        return switch (operation) {
+        long start = System.nanoTime();
+        Polynomial result = switch (operation) {
             case "ADDITION"         -> polynomial1.addTo(polynomial2);
             case "SUBTRACTION"      -> polynomial1.decreaseBy(polynomial2);
             case "MULTIPLICATION"   -> polynomial1.multiplyBy(polynomial2);
             default                 -> polynomial1.divideBy(polynomial2);
         };
+        OperationStats.record(statsName(toLogOperation(operation)), OperationStats.ARITHMETIC, start);
+        return result;
     }
 
 
@@ -167,6 +236,8 @@ public class PolynomialEvaluator {
                     return constructPolynomialWithAssistance(reader);
             } catch (IOException e) {
                 System.err.println(Constants.IOEXCEPTION_ERROR_MESSAGE);
+            } catch (PolynomialParseException e) {
+                System.out.println(Constants.RED + Constants.BOLD + "INVALID POLYNOMIAL. " + e.getMessage() + "Please try again." + Constants.RESET);
             } catch (Exception e) {
                 System.out.println(Constants.RED + Constants.BOLD + "INVALID POLYNOMIAL. Please try again." + Constants.RESET);
             }
@@ -244,9 +315,12 @@ public class PolynomialEvaluator {
 
     /**
      * Converts a string representation of a polynomial into a Polynomial object.
+     * Parsing is done by {@link PolynomialParser}, which also accepts decimal coefficients (i.e. 2.5x^2),
+     * through the {@link ParseCache#getShared() shared ParseCache}, so a text seen before isn't parsed again.
      *
      * @param polynomialString the string representation of the polynomial
-     * @return the constructed Polynomial
+     * @return the constructed Polynomial, an {@link ImmutablePolynomial} shared with other callers of the same text
+     * @throws PolynomialParseException if the string is not a valid polynomial
      */
     public Polynomial constructPolynomialFromString(String polynomialString) {
         if (polynomialString == null || polynomialString.isBlank())
@@ -255,106 +329,17 @@ public class PolynomialEvaluator {
         if (polynomialString.length() == 1 && !Character.isDigit(polynomialString.charAt(0)))
             throw new IllegalArgumentException("INVALID POLYNOMIAL");
 
-        String formattedPolynomialString = polynomialString.replace(" ", "");
-        char literal = getLiteralFromPolynomialString(formattedPolynomialString);
-
-        ArrayList<Term> terms = new ArrayList<>();
-
-        // Have 2 pointers, one from the starting index of a term and one on the ending of the same term
-        // Then read each term one by one then passed that to the termString to Term method
-        int currentTermIndex = 0;
-        int currentTermCharIndex = 0;
-        while (currentTermIndex < formattedPolynomialString.length()) {
-            currentTermCharIndex = findNextTermEndIndex(++currentTermCharIndex, formattedPolynomialString); // set it to the last index + 1 of the current term
-            String termString = formattedPolynomialString.substring(currentTermIndex, currentTermCharIndex); // extract that from the polynomial
-            Term term = convertStringToTermGivenLiteral(termString, literal);
-            terms.add(term);
-            currentTermIndex = currentTermCharIndex; // Move to the next term
-        }
-
-        return new Polynomial(terms);
-    }
-
-
-
-    /**
-     * Finds the end index of the next term in the polynomial string.
-     *
-     * @param startIndex the starting index to search from
-     * @param polynomialString the polynomial string
-     * @return the index of the last character of the term
-     */
-    private int findNextTermEndIndex(int startIndex, String polynomialString) {
-        int index = startIndex;
-
-        while (index < polynomialString.length() && isCharacterNotOperator(polynomialString.charAt(index))) {
-            index++;
-        }
-
-        return index; // Return the index of the last character of the term
-    }
-
-    private boolean isCharacterNotOperator(char character) {
-        return character != '-' && character != '+';
+        long start = System.nanoTime();
+        Polynomial polynomial = ParseCache.getShared().parse(polynomialString);
+        OperationStats.record(OperationStats.POLYNOMIAL, OperationStats.PARSE, start);
+        return polynomial;
     }
 
 
-    // Identifies the literal from the StringPolynomial
-    private char getLiteralFromPolynomialString(String formattedPolynomialString) {
-        for (int i = 0; i < formattedPolynomialString.length(); i++) {
-            char currentChar = formattedPolynomialString.charAt(i);
-            if (Character.isLetter(currentChar))
-                return currentChar;
-        }
-        return 0;
-    }
-
 
     // Method that returns a Term object given its String form and the literal
     public Term convertStringToTermGivenLiteral(String termString, char literal) {
-        double coefficient; // Default coefficient
-        int exponent = 0; // Default exponent
-
-        // Split the term string based on the literal character, preserving the literal character in the split parts.
-        // If the term string doesn't contain the literal, the entire string is considered the coefficient part.
-        if (termStringHasLiteral(termString)) {
-            String[] parts = splitString(termString, "(?=[" + literal + "])");
-
-            // Extract the coefficient part (if present) and the literal part.
-            String coefficientPart = (parts.length > 1) ? parts[0] : "";
-            String literalPart = (parts.length > 1) ? parts[1] : parts[0]; // Either the literal part or the entire term
-
-            coefficient = parseCoefficient(coefficientPart);
-            exponent = parseExponent(literalPart);
-        } else
-            // If the term doesn't contain a literal, the entire string is the coefficient.
-            coefficient = Double.parseDouble(termString);
-
-        return new Term(coefficient, literal, exponent);
-    }
-
-    // Given a coefficient part (i.e. -, 4 or none at all), it returns the coefficient
-    private double parseCoefficient(String coefficientPart) {
-        if (hasCoefficient(coefficientPart))
-            return getCoefficientPart(coefficientPart);
-        else if (isCoefficientNegativeOne(coefficientPart))
-            return -1;
-
-        return 1; // Default coefficient if none specified
-    }
-
-    // Helper method
-    // Given a literal part (i.e., x^3), it returns the exponent
-    private int parseExponent(String literalPart) {
-        if (literalIsMoreThanOne(literalPart))
-            throw new IllegalArgumentException("Invalid Term: Multi-variable terms are not supported.");
-
-        if (hasExponent(literalPart)) {
-            String[] varParts = splitString(literalPart, "\\^");
-            return getExponentPart(varParts);
-        }
-
-        return 1; // Default exponent if none specified
+        return PolynomialParser.parseTerm(termString, literal);
     }
 
 
@@ -379,7 +364,7 @@ public class PolynomialEvaluator {
     // helper method
     private int readChoice(BufferedReader reader) {
         showMenu();
-        return readInteger(1,7,reader);
+        return readInteger(1,8,reader);
     }
 
 
@@ -445,86 +430,18 @@ public class PolynomialEvaluator {
     }
 
 
-    // Method to get the exponent part given an array of a literal part
-    // the first element should be the literal
-    private int getExponentPart(String[] varParts) {
-        return Integer.parseInt(varParts[1]);
-    }
-
-    // Method to split a given string with a given splitter
-    private String[] splitString(String termString, String splitter) {
-        return termString.split(splitter);
-    }
-
-    private int getCoefficientPart(String coefficientPart) {
-        return Integer.parseInt(coefficientPart);
-    }
-
-    // Method to check if the literal part (i.e., x^3 or a) has an exponent
-    private boolean hasExponent(String literalPart) {
-        return literalPart.contains(Constants.EXPONENT_SYMBOL);
-    }
-
-    // Pre-condition: coefficient is either one or negative 1 "-a" or "a"
-    private boolean isCoefficientNegativeOne(String coefficient) {
-        return coefficient.equals(Constants.NEGATIVE_SIGN);
-    }
-
-    // Method to check if the term String has a literal
-    private boolean termStringHasLiteral(String termString) {
-        return termString.matches(Constants.LETTERS);
-    }
-
-    // method to check if there are more than one literal in the given String
-    // literalPart = i.e., x^3
-    private boolean literalIsMoreThanOne(String literalPart) {
-        String[] parts = splitString(literalPart, "\\" + Constants.EXPONENT_SYMBOL);
-        return parts[0].length() != 1;
-    }
-
-    // Method to check if it is a coefficient
-    private boolean hasCoefficient(String coefficient) {
-        return !coefficient.isEmpty() && !coefficient.equals(Constants.ADDITION_SIGN) &&
-                !coefficient.equals(Constants.NEGATIVE_SIGN);
-    }
-
-
     /**
      * This method is used to display results with format for the evaluation of Polynomial
      * @param polynomial evaluated polynomial
      * @param value the result.
      */
     private void displayResults(Polynomial polynomial, double value) {
-        StringBuilder log = new StringBuilder();
+        long start = System.nanoTime();
+        double result = EvaluationCache.getShared().evaluate(polynomial, value);
+        OperationStats.record(statsName(Log.Operation.EVALUATE), OperationStats.ARITHMETIC, start);
 
-        // Add a stylized header
-        log.append(Constants.GREEN).append("╔══════════════════════════════════════╗\n").append(Constants.RESET);
-        log.append(Constants.GREEN).append("          EVALUATING POLYNOMIAL         ").append(Constants.RESET).append("\n");
-        log.append(Constants.GREEN).append("╚══════════════════════════════════════╝\n").append(Constants.RESET);
-
-        // Log the polynomial being evaluated
-        log.append(Constants.YELLOW).append("Polynomial: ").append(Constants.RESET)
-                .append(Constants.BOLD).append(polynomial).append(Constants.RESET).append("\n");
-
-        // Log the value of the coefficient
-        log.append(Constants.YELLOW).append("Value for Coefficient '").append(Constants.RESET)
-                .append(Constants.BOLD).append(polynomial.getLiteralCoefficient())
-                .append(Constants.RESET).append("': ").append(Constants.CYAN)
-                .append(String.format("%.3f", value)).append(Constants.RESET).append("\n");
-
-        // Log the result after evaluation
-        log.append(Constants.YELLOW).append("Calculated Result: ").append(Constants.RESET)
-                .append(Constants.CYAN).append(String.format("%.3f", polynomial.evaluate(value)))
-                .append(Constants.RESET).append("\n");
-
-        // Add a divider line at the end
-        log.append(Constants.GREEN).append("╔══════════════════════════════════════╗\n").append(Constants.RESET);
-        log.append(Constants.GREEN).append("            END OF EVALUATION         ").append(Constants.RESET).append("\n");
-        log.append(Constants.GREEN).append("╚══════════════════════════════════════╝").append(Constants.RESET);
-
-        // Print the log and add it to the logger
-        System.out.println(log);
-        Logger.addLog(log.toString(), new Date());
+        // Print the banner, the logger keeps only the data and renders it again when viewed
+        printAndLog(Log.ofEvaluation(polynomial, value, result, System.currentTimeMillis()));
     }
 
 
@@ -536,40 +453,104 @@ public class PolynomialEvaluator {
      * @param operation the operation used
      */
     private void displayResults(Polynomial polynomial1, Polynomial polynomial2, Polynomial result, String operation) {
-        StringBuilder output = new StringBuilder();
+        printAndLog(Log.ofOperation(toLogOperation(operation), polynomial1, polynomial2, result,
+                System.currentTimeMillis()));
+    }
 
-        output.append(Constants.GREEN).append("╔══════════════════════════════════════╗\n").append(Constants.RESET);
-        output.append(Constants.GREEN).append("         RESULT OF ").append(operation).append(Constants.RESET).append("\n");
-        output.append(Constants.GREEN).append("╚══════════════════════════════════════╝\n").append(Constants.RESET);
 
-        output.append(Constants.YELLOW).append("First Polynomial: ").append(Constants.RESET);
-        output.append(Constants.BOLD).append("   ").append(polynomial1).append(Constants.RESET).append("\n"); // Ensure Polynomial has a proper toString() method
+    // Prints the banner of the log and adds it to the history, timing both.
+    // A history that can't be written is reported once, then the logs are only printed.
+    void printAndLog(Log log) {
+        String operation = statsName(log.getOperation());
 
-        output.append(Constants.YELLOW).append("Second Polynomial: ").append(Constants.RESET);
-        output.append(Constants.BOLD).append("   ").append(polynomial2).append(Constants.RESET).append("\n"); // Ensure Polynomial has a proper toString() method
+        long start = System.nanoTime();
+        String banner = log.render();
+        OperationStats.record(operation, OperationStats.RENDER, start);
+        System.out.println(banner);
 
-        if (operation.equals("DIVISION")) {
-            PolynomialDivisionResult polynomialDivisionResult = (PolynomialDivisionResult) result;
-            output.append(Constants.BOLD).append("   ").append(polynomialDivisionResult.toString()).append(Constants.RESET).append("\n");
-        } else {
-            output.append(Constants.YELLOW).append("Resulting Polynomial: ").append(Constants.RESET);
-            output.append(Constants.BOLD).append("   ").append(result).append(Constants.RESET).append("\n"); // Ensure Polynomial has a proper toString() method
+        if (historyFailed)
+            return;
+        start = System.nanoTime();
+        try {
+            Logger.addLog(log);
+        } catch (UncheckedIOException | IllegalStateException e) {
+            historyFailed = true;
+            reportHistoryFailure(e);
+            return;
         }
+        OperationStats.record(operation, OperationStats.LOG, start);
+    }
 
-        output.append(Constants.GREEN).append("╔══════════════════════════════════════╗\n").append(Constants.RESET);
-        output.append(Constants.GREEN).append("             END OF RESULT           ").append(Constants.RESET).append("\n");
-        output.append(Constants.GREEN).append("╚══════════════════════════════════════╝").append(Constants.RESET);
+    private static void reportHistoryFailure(RuntimeException e) {
+        System.err.println(Constants.RED + "History could not be written, this session is no longer logged: "
+                + e.getMessage() + Constants.RESET);
+    }
 
-        System.out.print(output + "\n");
-        Logger.addLog(output.toString(), new Date());
+    private static Log.Operation toLogOperation(String operation) {
+        return switch (operation) {
+            case "ADDITION" -> Log.Operation.ADD;
+            case "SUBTRACTION" -> Log.Operation.SUBTRACT;
+            case "MULTIPLICATION" -> Log.Operation.MULTIPLY;
+            case "DIVISION" -> Log.Operation.DIVIDE;
+            default -> throw new IllegalArgumentException("Unknown operation: " + operation + ". ");
+        };
     }
 
+    // The name of the operation in the stats, the one searches of the history use
+    private static String statsName(Log.Operation operation) {
+        return operation.name().toLowerCase(Locale.ROOT);
+    }
 
 
+
+    /**
+     * Runs the menu, or the batch mode with {@code --batch [file]}: operations are read one per line
+     * from the file, or from the standard input if there is no file or it is "-" (see {@link BatchProcessor}).
+     * {@code --points <polynomial> <input> <output>} evaluates the Polynomial over a binary file of
+     * little-endian doubles (see {@link PointFileEvaluator}).
+     * {@code --history <query>} prints the logs matching the query, e.g. {@code "op=add; from=2024-09-24"}
+     * (see {@link midterms.LogsPackage.HistoryQuery}).
+     * Any of these can be preceded by {@code --metrics <file>}, which dumps the latencies of {@link OperationStats}
+     * to the file in the Prometheus text format on STATS and on exit, and by {@code --parse-cache <size>}, which sets
+     * the number of Polynomials the {@link ParseCache} keeps, 0 to parse every text, and by
+     * {@code --eval-cache <size>}, which keeps that many values in the {@link EvaluationCache}.
+     *
+     * @param args the command line arguments
+     */
     public static void main(String[] args) {
         PolynomialEvaluator myProgram;
 
         try {
+            while (args.length > 1 && (args[0].equals("--metrics") || args[0].equals("--parse-cache")
+                    || args[0].equals("--eval-cache"))) {
+                switch (args[0]) {
+                    case "--metrics" -> metricsFile = Path.of(args[1]);
+                    case "--parse-cache" -> ParseCache.setSharedCapacity(Integer.parseInt(args[1]));
+                    default -> EvaluationCache.setSharedCapacity(Integer.parseInt(args[1]));
+                }
+                args = Arrays.copyOfRange(args, 2, args.length);
+            }
+
+            if (args.length > 0 && args[0].equals("--batch")) {
+                int errors = runBatch(args.length > 1 ? args[1] : "-");
+                writeMetrics();
+                System.exit(errors == 0 ? 0 : 1);
+            }
+            if (args.length > 0 && args[0].equals("--history")) {
+                if (args.length != 2)
+                    throw new IllegalArgumentException("Usage: --history <query>");
+                Logger.ReadData();
+                Logger.searchLog(args[1]);
+                Logger.saveData();
+                return;
+            }
+            if (args.length > 0 && args[0].equals("--points")) {
+                if (args.length != 4)
+                    throw new IllegalArgumentException("Usage: --points <polynomial> <input> <output>");
+                runPointFile(args[1], Path.of(args[2]), Path.of(args[3]));
+                return;
+            }
+
             myProgram = new PolynomialEvaluator();
             myProgram.run();
         } catch (Exception e) {
@@ -578,6 +559,59 @@ public class PolynomialEvaluator {
     }
 
 
+    /**
+     * Streams the operations of the file through a {@link BatchProcessor}, writing the results to the
+     * standard output with a large buffer, and the throughput summary to the standard error.
+     *
+     * @param path the file of operations, or "-" for the standard input
+     * @return the number of operations that failed
+     * @throws IOException if reading or writing fails
+     */
+    private static int runBatch(String path) throws IOException {
+        BatchProcessor processor = new BatchProcessor();
+        long start = System.nanoTime();
+
+        try (BufferedReader input = path.equals("-")
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), Constants.BATCH_BUFFER_SIZE)
+                     : Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8);
+             Writer output = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), Constants.BATCH_BUFFER_SIZE)) {
+            processor.process(input, output);
+        }
+
+        System.err.println(processor.getSummary(System.nanoTime() - start));
+        return (int) Math.min(processor.getErrorCount(), Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Evaluates the Polynomial over every value of the input file on all cores, reporting the progress to the standard error.
+     *
+     * @param polynomialString the string representation of the polynomial
+     * @param input a file of little-endian doubles
+     * @param output where the results are written, as little-endian doubles
+     * @throws IOException if a file can't be read, written or mapped
+     */
+    private static void runPointFile(String polynomialString, Path input, Path output) throws IOException {
+        Polynomial polynomial = PolynomialParser.parse(polynomialString);
+        try (PointFileEvaluator evaluator = new PointFileEvaluator(Runtime.getRuntime().availableProcessors(), System.err)) {
+            evaluator.evaluate(polynomial, input, output);
+        }
+    }
+
+
+    // Dumps the stats to the metrics file, if one was given
+    private static void writeMetrics() {
+        if (metricsFile == null)
+            return;
+        try {
+            OperationStats.writePrometheus(metricsFile);
+        } catch (IOException e) {
+            System.err.println("Metrics could not be written to " + metricsFile + ": " + e.getMessage());
+        }
+    }
+
+
     // Inner class to hide the constants
     private static class Constants {
 
@@ -586,16 +620,12 @@ public class PolynomialEvaluator {
         public static final String RED = "\u001B[31m";
         public static final String GREEN = "\u001B[32m";
         public static final String YELLOW = "\u001B[33m";
-        public static final String CYAN = "\u001B[36m";
 
         // Text Formatting
         public static final String BOLD = "\u001B[1m";
 
-        // Symbols and Signs
-        public static final String LETTERS = ".*[a-zA-Z].*";
-        public static final CharSequence EXPONENT_SYMBOL = "^";
-        public static final String NEGATIVE_SIGN = "-";
-        public static final String ADDITION_SIGN = "+";
+        // Batch mode
+        public static final int BATCH_BUFFER_SIZE = 1 << 16;
 
         // Error Message
         public static final String IOEXCEPTION_ERROR_MESSAGE = RED + BOLD + "An error occurred while reading input. Please try again." + RESET;
@@ -0,0 +1,230 @@
+package midterms;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder events of the Polynomial operations, named {@code midterms.Parse}, {@code midterms.Evaluate},
+ * {@code midterms.Add}, {@code midterms.Subtract}, {@code midterms.Multiply}, {@code midterms.Divide} and
+ * {@code midterms.LogFlush}.
+ * <p>
+ * Each operation is wrapped the usual way: the event is created and begun, and only filled in and committed if
+ * {@link Event#shouldCommit()}. When no recording enables them, the JIT compiles all of it away.
+ * They are off unless a recording enables them, e.g. with {@code src/main/resources/jfr/polynomial.jfc}.
+ */
+public class PolynomialEvents {
+    /** The algorithm of the operations on two dense Polynomials, element by element over their arrays. */
+    public static final String DENSE = "dense";
+
+    /** The form of a Polynomial kept as its terms, for the parse events. */
+    public static final String SPARSE = "sparse";
+
+    /** The algorithm of additions and subtractions of a sparse Polynomial, a merge of the terms. */
+    public static final String MERGE = "merge";
+
+    /** The algorithm of products of a sparse Polynomial, every term by every term. */
+    public static final String DISTRIBUTE = "distribute";
+
+    /** The algorithm of products of short coefficient arrays, every coefficient by every coefficient. */
+    public static final String SCHOOLBOOK = "schoolbook";
+
+    /** The algorithm of products of long coefficient arrays, Karatsuba's method. */
+    public static final String KARATSUBA = "karatsuba";
+
+    /** The algorithm of products of very long coefficient arrays, an exact FFT convolution. */
+    public static final String FFT = "fft";
+
+    /** The algorithm of divisions whose dividend is of a lower degree than the divisor. */
+    public static final String TRIVIAL = "trivial";
+
+    /** The algorithm of divisions by the iterative long division. */
+    public static final String LONG = "long";
+
+    /** The algorithm of divisions by Newton's iteration on the reversed coefficients. */
+    public static final String NEWTON = "newton";
+
+
+    private PolynomialEvents() {
+    }
+
+
+    /**
+     * An operation on two Polynomials: their degrees and term counts, the result's, and the algorithm used.
+     */
+    @Category({"Polynomial Evaluator", "Operations"})
+    @StackTrace(false)
+    public abstract static class OperationEvent extends Event {
+        @Label("First Degree")
+        int firstDegree;
+
+        @Label("First Term Count")
+        int firstTermCount;
+
+        @Label("Second Degree")
+        int secondDegree;
+
+        @Label("Second Term Count")
+        int secondTermCount;
+
+        @Label("Result Degree")
+        int resultDegree;
+
+        @Label("Result Term Count")
+        int resultTermCount;
+
+        @Label("Algorithm")
+        String algorithm;
+
+
+        /**
+         * Fills in the operands and the result, the algorithm is set where it is chosen.
+         *
+         * @param first  the first operand
+         * @param second the second operand
+         * @param result the result, or the quotient of a division, null for 0
+         */
+        void set(Polynomial first, Polynomial second, Polynomial result) {
+            set(first, second.getDegree(), second.getTermCount(), result);
+        }
+
+        /**
+         * Fills in the operands and the result, when the second operand is only known by its degree and term count.
+         *
+         * @param first           the first operand
+         * @param secondDegree    the degree of the second operand
+         * @param secondTermCount the term count of the second operand
+         * @param result          the result, or the quotient of a division, null for 0
+         */
+        void set(Polynomial first, int secondDegree, int secondTermCount, Polynomial result) {
+            this.firstDegree = first.getDegree();
+            this.firstTermCount = first.getTermCount();
+            this.secondDegree = secondDegree;
+            this.secondTermCount = secondTermCount;
+            this.resultDegree = result == null ? 0 : result.getDegree();
+            this.resultTermCount = result == null ? 0 : result.getTermCount();
+        }
+    }
+
+
+    /** An addition, by {@link Polynomial#addTo(Polynomial)}. */
+    @Name("midterms.Add")
+    @Label("Polynomial Addition")
+    public static final class AddEvent extends OperationEvent {
+    }
+
+    /** A subtraction, by {@link Polynomial#decreaseBy(Polynomial)}. */
+    @Name("midterms.Subtract")
+    @Label("Polynomial Subtraction")
+    public static final class SubtractEvent extends OperationEvent {
+    }
+
+    /** A product, by {@link Polynomial#multiplyBy(Polynomial)}: distribute, schoolbook, karatsuba or fft. */
+    @Name("midterms.Multiply")
+    @Label("Polynomial Multiplication")
+    public static final class MultiplyEvent extends OperationEvent {
+    }
+
+    /** A division, by {@link Polynomial#divideBy(Polynomial)} or a {@link PolynomialReducer}: long, newton or trivial. */
+    @Name("midterms.Divide")
+    @Label("Polynomial Division")
+    @Description("The second operand is the divisor, the result the quotient.")
+    public static final class DivideEvent extends OperationEvent {
+    }
+
+
+    /** The parsing of a Polynomial, by {@link PolynomialParser#parse(CharSequence)}. */
+    @Name("midterms.Parse")
+    @Label("Polynomial Parse")
+    @Category({"Polynomial Evaluator", "Operations"})
+    @StackTrace(false)
+    public static final class ParseEvent extends Event {
+        @Label("Length")
+        @Description("The number of characters parsed.")
+        int length;
+
+        @Label("Degree")
+        int degree;
+
+        @Label("Term Count")
+        int termCount;
+
+        @Label("Form")
+        @Description("The form the Polynomial is kept in, dense or sparse.")
+        String form;
+
+
+        /**
+         * Fills in the length of the text and the Polynomial parsed from it.
+         *
+         * @param length     the number of characters parsed
+         * @param polynomial the Polynomial
+         */
+        void set(int length, Polynomial polynomial) {
+            this.length = length;
+            this.degree = polynomial.getDegree();
+            this.termCount = polynomial.getTermCount();
+            this.form = polynomial.isDense() ? DENSE : SPARSE;
+        }
+    }
+
+
+    /** An evaluation, by {@link Polynomial#evaluate(double)} or over an array of values. */
+    @Name("midterms.Evaluate")
+    @Label("Polynomial Evaluation")
+    @Category({"Polynomial Evaluator", "Operations"})
+    @StackTrace(false)
+    public static final class EvaluateEvent extends Event {
+        @Label("Degree")
+        int degree;
+
+        @Label("Term Count")
+        int termCount;
+
+        @Label("Value Count")
+        @Description("The number of values the Polynomial was evaluated at.")
+        int valueCount;
+
+        @Label("Algorithm")
+        @Description("Horner's scheme, over the terms with gaps, or vectorized or blocked over arrays of values.")
+        String algorithm;
+
+
+        /**
+         * Fills in the Polynomial, the number of values and the algorithm.
+         *
+         * @param polynomial the Polynomial evaluated
+         * @param valueCount the number of values
+         * @param algorithm  the algorithm used
+         */
+        void set(Polynomial polynomial, int valueCount, String algorithm) {
+            this.degree = polynomial.getDegree();
+            this.termCount = polynomial.getTermCount();
+            this.valueCount = valueCount;
+            this.algorithm = algorithm;
+        }
+    }
+
+
+    /** A batch of logs written to the history file by its background thread. */
+    @Name("midterms.LogFlush")
+    @Label("History Flush")
+    @Category({"Polynomial Evaluator", "History"})
+    @StackTrace(false)
+    public static final class LogFlushEvent extends Event {
+        @Label("Log Count")
+        public int logCount;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Fsync")
+        @Description("Whether the history file was forced to the disk.")
+        public boolean fsync;
+    }
+}
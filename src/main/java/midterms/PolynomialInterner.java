@@ -0,0 +1,68 @@
+package midterms;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of {@link ImmutablePolynomial}s which keeps one copy of each distinct Polynomial, for inputs that repeat
+ * the same Polynomials many times, written alike or not (i.e. "x + 1" and "1 + x").
+ * <p>
+ * Polynomials are told apart by {@link Polynomial#equals(Object)}, which compares their cached fingerprints first,
+ * so looking up a Polynomial costs a hash lookup and, when it is found, one pass over its terms.
+ * The pool is safe to share between threads. It keeps every distinct Polynomial until it is cleared,
+ * so its lifetime is the caller's: a batch, a file, or the program.
+ */
+public class PolynomialInterner {
+    private final ConcurrentHashMap<Polynomial, ImmutablePolynomial> pool = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+
+
+    /**
+     * Gets the copy in the pool of a Polynomial, adding an immutable copy of it if it is the first of its kind.
+     *
+     * @param polynomial the Polynomial
+     * @return the ImmutablePolynomial of the pool equal to the Polynomial
+     */
+    public ImmutablePolynomial intern(Polynomial polynomial) {
+        ImmutablePolynomial interned = pool.get(polynomial);
+        if (interned != null) {
+            hits.incrementAndGet();
+            return interned;
+        }
+
+        ImmutablePolynomial immutable = ImmutablePolynomial.of(polynomial);
+        interned = pool.putIfAbsent(immutable, immutable); // Another thread may have added it meanwhile
+        if (interned != null) {
+            hits.incrementAndGet();
+            return interned;
+        }
+        return immutable;
+    }
+
+
+    /**
+     * Gets the number of distinct Polynomials in the pool.
+     *
+     * @return the size
+     */
+    public int size() {
+        return pool.size();
+    }
+
+    /**
+     * Gets hit count.
+     *
+     * @return the number of Polynomials found in the pool, whose copies were spared
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+
+    /**
+     * Empties the pool. The Polynomials it gave keep working, but later ones won't be the same instances.
+     */
+    public void clear() {
+        pool.clear();
+    }
+}
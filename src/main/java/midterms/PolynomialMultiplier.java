@@ -0,0 +1,205 @@
+package midterms;
+
+import java.util.Arrays;
+
+/**
+ * Multiplication engine for Polynomials kept in the dense form.
+ * Works on primitive coefficient arrays indexed by exponent, and switches from the schoolbook
+ * method to Karatsuba's method once both operands reach a configurable length.
+ * Even longer operands go through an FFT convolution ({@link FastFourierTransform}) when its
+ * result can be rounded back to the exact product, and fall back to Karatsuba's method otherwise.
+ */
+public class PolynomialMultiplier {
+    /** The default number of coefficients from which Karatsuba's method is used. */
+    public static final int DEFAULT_KARATSUBA_THRESHOLD = 48;
+
+    /** The default number of coefficients from which the FFT convolution is tried. */
+    public static final int DEFAULT_FFT_THRESHOLD = 2048;
+
+    private static volatile int karatsubaThreshold = DEFAULT_KARATSUBA_THRESHOLD;
+    private static volatile int fftThreshold = DEFAULT_FFT_THRESHOLD;
+
+    private PolynomialMultiplier() {
+    }
+
+
+    /**
+     * Gets karatsuba threshold.
+     *
+     * @return the number of coefficients from which Karatsuba's method is used
+     */
+    public static int getKaratsubaThreshold() {
+        return karatsubaThreshold;
+    }
+
+
+    /**
+     * Sets karatsuba threshold.
+     * Below it, the schoolbook method is used since it has less overhead on short operands.
+     *
+     * @param threshold the number of coefficients from which Karatsuba's method is used
+     * @throws IllegalArgumentException if threshold is less than 2
+     */
+    public static void setKaratsubaThreshold(int threshold) {
+        if (threshold < 2)
+            throw new IllegalArgumentException("Karatsuba threshold must be at least 2. ");
+        karatsubaThreshold = threshold;
+    }
+
+
+    /**
+     * Gets fft threshold.
+     *
+     * @return the number of coefficients from which the FFT convolution is tried
+     */
+    public static int getFftThreshold() {
+        return fftThreshold;
+    }
+
+
+    /**
+     * Sets fft threshold.
+     * Both operands need at least this many coefficients before the FFT convolution is tried.
+     *
+     * @param threshold the number of coefficients from which the FFT convolution is tried
+     * @throws IllegalArgumentException if threshold is less than 1
+     */
+    public static void setFftThreshold(int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("FFT threshold must be at least 1. ");
+        fftThreshold = threshold;
+    }
+
+
+    /**
+     * Multiplies two coefficient arrays.
+     *
+     * @param a the coefficients of the first Polynomial, indexed by exponent
+     * @param b the coefficients of the second Polynomial, indexed by exponent
+     * @return the coefficients of the product, of length a.length + b.length - 1
+     */
+    static double[] multiply(double[] a, double[] b) {
+        return multiply(a, b, null);
+    }
+
+
+    /**
+     * Multiplies two coefficient arrays, telling the event which algorithm was used.
+     *
+     * @param a     the coefficients of the first Polynomial, indexed by exponent
+     * @param b     the coefficients of the second Polynomial, indexed by exponent
+     * @param event the event of the product, or null
+     * @return the coefficients of the product, of length a.length + b.length - 1
+     */
+    static double[] multiply(double[] a, double[] b, PolynomialEvents.OperationEvent event) {
+        if (a.length < b.length) { // Keep the longer operand first
+            double[] temporary = a;
+            a = b;
+            b = temporary;
+        }
+
+        if (b.length >= fftThreshold) {
+            double[] result = FastFourierTransform.convolveExactly(a, b);
+            if (result != null) {
+                setAlgorithm(event, PolynomialEvents.FFT);
+                return result;
+            }
+        }
+
+        double[] result = new double[a.length + b.length - 1];
+        int threshold = karatsubaThreshold;
+
+        if (b.length < threshold) {
+            schoolbook(a, 0, a.length, b, 0, b.length, result, 0);
+            setAlgorithm(event, PolynomialEvents.SCHOOLBOOK);
+            return result;
+        }
+        setAlgorithm(event, PolynomialEvents.KARATSUBA);
+
+        // Cut the longer operand into pieces as long as the shorter one, so each Karatsuba call is balanced
+        int length = b.length;
+        double[] piece = new double[length];
+        double[] product = new double[2 * length - 1];
+        for (int start = 0; start < a.length; start += length) {
+            int pieceLength = Math.min(length, a.length - start);
+            if (pieceLength < length)
+                Arrays.fill(piece, 0);
+            System.arraycopy(a, start, piece, 0, pieceLength);
+
+            Arrays.fill(product, 0);
+            karatsuba(piece, 0, b, 0, length, product, 0, threshold);
+
+            // The padded zeros only contribute to positions outside the product
+            for (int i = 0; i < pieceLength + length - 1; i++)
+                result[start + i] += product[i];
+        }
+
+        return result;
+    }
+
+
+    private static void setAlgorithm(PolynomialEvents.OperationEvent event, String algorithm) {
+        if (event != null)
+            event.algorithm = algorithm;
+    }
+
+
+    // Adds the product of a[aFrom, aFrom + aLength) and b[bFrom, bFrom + bLength) to result, starting at resultFrom
+    static void schoolbook(double[] a, int aFrom, int aLength, double[] b, int bFrom, int bLength,
+                           double[] result, int resultFrom) {
+        for (int i = 0; i < aLength; i++) {
+            double coefficient = a[aFrom + i];
+            if (coefficient == 0)
+                continue;
+
+            int offset = resultFrom + i;
+            for (int j = 0; j < bLength; j++)
+                result[offset + j] += coefficient * b[bFrom + j];
+        }
+    }
+
+
+    // Adds the product of a[aFrom, aFrom + length) and b[bFrom, bFrom + length) to result, starting at resultFrom.
+    // Splits both in a low half and a high half, and uses three half-size products instead of four:
+    // (a0 + a1 x^h)(b0 + b1 x^h) = a0 b0 + ((a0 + a1)(b0 + b1) - a0 b0 - a1 b1) x^h + a1 b1 x^2h
+    private static void karatsuba(double[] a, int aFrom, double[] b, int bFrom, int length,
+                                  double[] result, int resultFrom, int threshold) {
+        if (length < threshold) {
+            schoolbook(a, aFrom, length, b, bFrom, length, result, resultFrom);
+            return;
+        }
+
+        int low = length / 2;
+        int high = length - low; // high >= low
+
+        double[] lowProduct = new double[2 * low - 1];
+        double[] highProduct = new double[2 * high - 1];
+        karatsuba(a, aFrom, b, bFrom, low, lowProduct, 0, threshold);
+        karatsuba(a, aFrom + low, b, bFrom + low, high, highProduct, 0, threshold);
+
+        double[] aSum = new double[high];
+        double[] bSum = new double[high];
+        for (int i = 0; i < high; i++) {
+            aSum[i] = a[aFrom + low + i];
+            bSum[i] = b[bFrom + low + i];
+        }
+        for (int i = 0; i < low; i++) {
+            aSum[i] += a[aFrom + i];
+            bSum[i] += b[bFrom + i];
+        }
+
+        double[] middleProduct = new double[2 * high - 1];
+        karatsuba(aSum, 0, bSum, 0, high, middleProduct, 0, threshold);
+
+        for (int i = 0; i < lowProduct.length; i++) {
+            result[resultFrom + i] += lowProduct[i];
+            middleProduct[i] -= lowProduct[i];
+        }
+        for (int i = 0; i < highProduct.length; i++) {
+            result[resultFrom + 2 * low + i] += highProduct[i];
+            middleProduct[i] -= highProduct[i];
+        }
+        for (int i = 0; i < middleProduct.length; i++)
+            result[resultFrom + low + i] += middleProduct[i];
+    }
+}
@@ -0,0 +1,34 @@
+package midterms;
+
+
+/**
+ * Thrown when a Polynomial can't be parsed from its String form.
+ * Carries the position of the first character that doesn't fit the syntax.
+ */
+public class PolynomialParseException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int position;
+
+
+    /**
+     * Instantiates a new Polynomial parse exception.
+     *
+     * @param problem  what was wrong, without the position
+     * @param position the index of the offending character in the parsed text
+     */
+    public PolynomialParseException(String problem, int position) {
+        super(problem + " at position " + position + ". ");
+        this.position = position;
+    }
+
+
+    /**
+     * Gets position.
+     *
+     * @return the index of the offending character in the parsed text
+     */
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,253 @@
+package midterms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Parses Polynomials such as "-5x^2 + 3.5x - 1" in a single pass over a CharSequence.
+ * Terms are separated by + and -, each term is an optional sign, an optional decimal coefficient,
+ * and an optional literal with an optional ^exponent. Spaces and tabs may appear between the parts of a term.
+ * All terms share one literal, the first letter found.
+ * <p>
+ * The parser doesn't use regular expressions or substrings: coefficients and exponents are accumulated
+ * into primitive arrays as they are read, and short decimals are converted without creating a String.
+ * Errors are reported with a {@link PolynomialParseException} holding the position of the offending character.
+ */
+public class PolynomialParser {
+    // 10^k is exact in a double for k <= 22, so a mantissa below 2^53 divided by it is correctly rounded
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long EXACT_MANTISSA_LIMIT = (1L << 53) / 10;
+
+    private final CharSequence text;
+    private final int length;
+    private int position;
+    private char literal;
+
+    // The terms in the order they were read, like terms are combined when the Polynomial is built
+    private double[] coefficients = new double[16];
+    private int[] exponents = new int[16];
+    private int termCount;
+
+
+    private PolynomialParser(CharSequence text, char literal) {
+        this.text = text;
+        this.length = text.length();
+        this.literal = literal;
+    }
+
+
+    /**
+     * Parses a Polynomial. Blank text gives an empty Polynomial.
+     *
+     * @param text the String form of the Polynomial
+     * @return the parsed Polynomial
+     * @throws PolynomialParseException if the text doesn't follow the syntax or has more than one literal
+     */
+    public static Polynomial parse(CharSequence text) {
+        PolynomialEvents.ParseEvent event = new PolynomialEvents.ParseEvent();
+        event.begin();
+        Polynomial polynomial = parseText(text);
+        if (event.shouldCommit()) {
+            event.set(text.length(), polynomial);
+            event.commit();
+        }
+        return polynomial;
+    }
+
+    private static Polynomial parseText(CharSequence text) {
+        PolynomialParser parser = new PolynomialParser(text, (char) 0);
+
+        parser.skipSpaces();
+        if (parser.position == parser.length)
+            return new Polynomial();
+
+        parser.readTerm();
+        while (parser.skipSpaces() < parser.length)
+            parser.readTerm(); // readTerm requires the sign that separates the terms
+
+        return parser.build();
+    }
+
+
+    /**
+     * Parses a single Term, such as "-2.5x^3" or "7".
+     *
+     * @param text the String form of the Term
+     * @param literal the literal the Term must use, if it has one
+     * @return the parsed Term
+     * @throws PolynomialParseException if the text isn't a single Term or uses another literal
+     */
+    public static Term parseTerm(CharSequence text, char literal) {
+        PolynomialParser parser = new PolynomialParser(text, literal);
+
+        parser.skipSpaces();
+        parser.readTerm();
+        if (parser.skipSpaces() < parser.length)
+            throw new PolynomialParseException("Expected the end of the term", parser.position);
+
+        return new Term(parser.coefficients[0], literal, parser.exponents[0]);
+    }
+
+
+    // Reads one term, starting at its sign. Only the first term may leave out the sign.
+    private void readTerm() {
+        if (position == length)
+            throw new PolynomialParseException("Expected a term", position);
+
+        double sign = 1;
+        char character = text.charAt(position);
+        if (character == '+' || character == '-') {
+            sign = character == '-' ? -1 : 1;
+            position++;
+            skipSpaces();
+        } else if (termCount > 0) {
+            throw new PolynomialParseException("Expected + or - between terms", position);
+        }
+
+        if (position == length)
+            throw new PolynomialParseException("Expected a term", position);
+
+        double coefficient = 1;
+        character = text.charAt(position);
+        boolean hasNumber = isDigit(character) || character == '.';
+        if (hasNumber) {
+            coefficient = readNumber();
+            skipSpaces();
+        }
+
+        int exponent = 0;
+        if (position < length && Character.isLetter(text.charAt(position))) {
+            readLiteral();
+            exponent = readExponent();
+        } else if (!hasNumber) {
+            throw new PolynomialParseException("Expected a coefficient or a literal", position);
+        }
+
+        add(sign * coefficient, exponent);
+    }
+
+
+    // Reads an unsigned decimal number such as 12, 2.5, .5 or 5.
+    private double readNumber() {
+        int start = position;
+        long mantissa = 0;
+        boolean exact = true;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean inFraction = false;
+
+        for (; position < length; position++) {
+            char character = text.charAt(position);
+            if (isDigit(character)) {
+                if (mantissa < EXACT_MANTISSA_LIMIT)
+                    mantissa = mantissa * 10 + (character - '0');
+                else
+                    exact = false;
+                if (inFraction && exact)
+                    fractionDigits++;
+                digits++;
+            } else if (character == '.' && !inFraction) {
+                inFraction = true;
+            } else {
+                break;
+            }
+        }
+
+        if (digits == 0)
+            throw new PolynomialParseException("Expected a digit", start);
+
+        if (exact && fractionDigits < POWERS_OF_TEN.length)
+            return mantissa / POWERS_OF_TEN[fractionDigits];
+        return Double.parseDouble(text.subSequence(start, position).toString()); // too long for the exact fast path
+    }
+
+
+    // Reads the literal of a term, and checks it is the same as the literal of the other terms
+    private void readLiteral() {
+        char character = text.charAt(position);
+        if (literal == 0)
+            literal = character;
+        else if (character != literal)
+            throw new PolynomialParseException("Multi-variable terms are not supported", position);
+        position++;
+
+        skipSpaces();
+        if (position < length && Character.isLetter(text.charAt(position)))
+            throw new PolynomialParseException("Multi-variable terms are not supported", position);
+    }
+
+
+    // Reads the exponent after a literal, 1 if there is no ^
+    private int readExponent() {
+        if (position == length || text.charAt(position) != '^')
+            return 1;
+        position++;
+        skipSpaces();
+
+        int start = position;
+        long exponent = 0;
+        while (position < length && isDigit(text.charAt(position))) {
+            exponent = exponent * 10 + (text.charAt(position) - '0');
+            if (exponent > Integer.MAX_VALUE)
+                throw new PolynomialParseException("Exponent is too large", start);
+            position++;
+        }
+
+        if (position == start)
+            throw new PolynomialParseException("Expected the digits of the exponent", position);
+        return (int) exponent;
+    }
+
+
+    // Moves past spaces and tabs, and returns the new position
+    private int skipSpaces() {
+        while (position < length && (text.charAt(position) == ' ' || text.charAt(position) == '\t'))
+            position++;
+        return position;
+    }
+
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+
+    private void add(double coefficient, int exponent) {
+        if (termCount == coefficients.length) {
+            coefficients = Arrays.copyOf(coefficients, 2 * termCount);
+            exponents = Arrays.copyOf(exponents, 2 * termCount);
+        }
+        coefficients[termCount] = coefficient;
+        exponents[termCount] = exponent;
+        termCount++;
+    }
+
+
+    // Combines the terms read into a Polynomial, straight into the dense form when the exponents are packed enough
+    private Polynomial build() {
+        int highest = 0;
+        boolean descending = true;
+        for (int i = 0; i < termCount; i++) {
+            highest = Math.max(highest, exponents[i]);
+            if (i > 0 && exponents[i] >= exponents[i - 1])
+                descending = false;
+        }
+
+        if (highest < 4L * termCount) { // at least a quarter of the coefficients are set
+            double[] dense = new double[highest + 1];
+            for (int i = 0; i < termCount; i++)
+                dense[exponents[i]] += coefficients[i];
+            return Polynomial.fromCoefficients(dense, literal);
+        }
+
+        ArrayList<Term> terms = new ArrayList<>(termCount);
+        for (int i = 0; i < termCount; i++)
+            if (!descending || coefficients[i] != 0)
+                terms.add(new Term(coefficients[i], literal, exponents[i]));
+
+        if (descending) // sorted and without like terms already
+            return Polynomial.fromSortedTerms(terms, literal);
+        return new Polynomial(terms);
+    }
+}
@@ -0,0 +1,298 @@
+package midterms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Divides many Polynomials by the same divisor.
+ * Everything that only depends on the divisor is derived once: the inverse of its leading coefficient and its terms
+ * as primitive arrays for long division at construction, its coefficients indexed by exponent and reversed on the
+ * first division that uses Newton's iteration, so a sparse divisor of a high degree costs no more than its terms.
+ * The power series inverse of the reversed divisor is computed on the first division that needs it and kept,
+ * growing when a longer quotient comes, so later divisions only pay for the multiplications.
+ * <p>
+ * A PolynomialReducer is immutable apart from that cache, and can be shared between threads.
+ * The divisor is copied, so later changes to it don't affect the PolynomialReducer.
+ */
+public class PolynomialReducer {
+    // Below this share of non-zero terms among the exponents it spans, the dividend is divided term by term,
+    // since a buffer indexed by exponent would be mostly empty, as with the sparse form of a Polynomial
+    private static final double BUFFER_FILL_RATIO = 0.125;
+
+    private final char literal;
+    private final int degree;
+    private final int termCount;
+    private final double leadCoefficient;
+    private final double leadInverse;
+
+    // The divisor without its leading term, as parallel arrays of exponents and coefficients
+    private final int[] exponents;
+    private final double[] coefficients;
+    private final int lowestExponent;
+
+    // The divisor indexed by exponent and reversed, built on the first Newton division, which needs it.
+    // Racing threads may both build it, they build the same.
+    private volatile NewtonDivisor newtonDivisor;
+
+    // Power series inverse of the reversed divisor, its length is always a power of two.
+    // Racing threads may both extend it, every published array is correct so the last write simply wins.
+    private volatile double[] reversedInverse;
+
+
+    /**
+     * Constructs a PolynomialReducer for the divisor.
+     *
+     * @param divisor the Polynomial to divide by
+     * @throws IllegalArgumentException if the divisor is empty
+     */
+    public PolynomialReducer(Polynomial divisor) {
+        if (divisor.isEmpty())
+            throw new IllegalArgumentException("Divisor is 0. ");
+
+        ArrayList<Term> terms = divisor.termList();
+        this.literal = divisor.getLiteralCoefficient();
+        this.degree = divisor.getDegree();
+        this.termCount = terms.size();
+        this.leadCoefficient = terms.getFirst().getCoefficient();
+        this.leadInverse = 1 / leadCoefficient;
+
+        this.exponents = new int[termCount - 1];
+        this.coefficients = new double[termCount - 1];
+        for (int i = 1; i < termCount; i++) {
+            exponents[i - 1] = terms.get(i).getExponent();
+            coefficients[i - 1] = terms.get(i).getCoefficient();
+        }
+        this.lowestExponent = divisor.getLowestExponent();
+        this.reversedInverse = new double[] {leadInverse};
+    }
+
+
+    /**
+     * Gets divisor.
+     *
+     * @return a copy of the divisor
+     */
+    public Polynomial getDivisor() {
+        ArrayList<Term> terms = new ArrayList<>(termCount);
+        terms.add(new Term(leadCoefficient, literal, degree));
+        for (int i = 0; i < exponents.length; i++)
+            terms.add(new Term(coefficients[i], literal, exponents[i]));
+        return Polynomial.fromSortedTerms(terms, literal);
+    }
+
+
+    /**
+     * Divides the dividend by the divisor, with the same result as {@link Polynomial#divideBy(Polynomial)}.
+     * Uses Newton's iteration when the quotient and the divisor are long enough and neither Polynomial has
+     * negative exponents (see {@link PolynomialDivider#getNewtonThreshold()}), and long division otherwise.
+     *
+     * @param dividend the Polynomial to be divided
+     * @return the quotient and the remainder
+     * @throws IllegalArgumentException if the literals of both Polynomials are different
+     */
+    public PolynomialDivisionResult divmod(Polynomial dividend) {
+        PolynomialEvents.DivideEvent event = new PolynomialEvents.DivideEvent();
+        event.begin();
+        PolynomialDivisionResult result = divmod(dividend, event);
+        if (event.shouldCommit()) {
+            event.set(dividend, degree, termCount, result.getQuotient());
+            event.commit();
+        }
+        return result;
+    }
+
+    // Divides the dividend, telling the event which algorithm was used
+    private PolynomialDivisionResult divmod(Polynomial dividend, PolynomialEvents.DivideEvent event) {
+        event.algorithm = PolynomialEvents.TRIVIAL;
+        if (dividend.isEmpty() || dividend.getDegree() < degree) // Cannot perform basic division
+            return new PolynomialDivisionResult(null, dividend); // return 0, with the remainder of the dividend
+
+        char resultLiteral = literalWith(dividend);
+        int threshold = PolynomialDivider.getNewtonThreshold();
+        int quotientLength = dividend.getDegree() - degree + 1;
+
+        if (quotientLength >= threshold && termCount >= threshold
+                && lowestExponent == 0 && dividend.getLowestExponent() == 0) {
+            PolynomialDivisionResult result = newtonDivision(dividend, resultLiteral);
+            if (result != null) {
+                event.algorithm = PolynomialEvents.NEWTON;
+                return result;
+            }
+        }
+
+        event.algorithm = PolynomialEvents.LONG;
+        long span = (long) dividend.getDegree() - Math.min(dividend.getLowestExponent(), lowestExponent) + 1;
+        if (dividend.getTermCount() >= BUFFER_FILL_RATIO * span)
+            return longDivision(dividend, resultLiteral);
+        return sparseLongDivision(dividend, resultLiteral);
+    }
+
+
+    /**
+     * Gets the remainder of the dividend divided by the divisor.
+     *
+     * @param dividend the Polynomial to be divided
+     * @return the remainder, whose degree is lower than the divisor's
+     * @throws IllegalArgumentException if the literals of both Polynomials are different
+     */
+    public Polynomial reduce(Polynomial dividend) {
+        return divmod(dividend).getRemainder();
+    }
+
+
+    // Returns the literal of the quotient and the remainder of a non-empty dividend
+    private char literalWith(Polynomial dividend) {
+        if (dividend.getLiteralCoefficient() != literal)
+            throw new IllegalArgumentException("Inconsistent literal coefficients. ");
+        return literal;
+    }
+
+
+    // Long division on a primitive buffer holding the remainder: divide the leading terms,
+    // subtract the quotient times the divisor, then repeat on the next leading term
+    PolynomialDivisionResult longDivision(Polynomial dividend, char resultLiteral) {
+        int dividendDegree = dividend.getDegree();
+
+        // The remainder buffer covers every exponent a step can reach
+        int lowest = Math.min(dividend.getLowestExponent(), lowestExponent);
+        double[] remainder = new double[dividendDegree - lowest + 1];
+        dividend.copyCoefficientsInto(remainder, lowest);
+
+        double[] quotient = new double[dividendDegree - degree + 1]; // indexed by exponent
+
+        for (int exponent = dividendDegree; exponent >= degree; exponent--) {
+            double coefficient = remainder[exponent - lowest];
+            if (coefficient == 0)
+                continue;
+
+            // Multiply by the inverse, then correct with the exact residual so the quotient matches a true division
+            double quotientCoefficient = coefficient * leadInverse;
+            quotientCoefficient += Math.fma(-quotientCoefficient, leadCoefficient, coefficient) * leadInverse;
+
+            int shift = exponent - degree;
+            quotient[shift] = quotientCoefficient;
+            remainder[exponent - lowest] = 0; // cancelled by the leading term of the divisor
+
+            for (int i = 0; i < exponents.length; i++)
+                remainder[exponents[i] + shift - lowest] -= quotientCoefficient * coefficients[i];
+        }
+
+        return new PolynomialDivisionResult(Polynomial.fromCoefficients(quotient, resultLiteral),
+                PolynomialDivider.remainderPolynomial(remainder, lowest, degree - 1, resultLiteral));
+    }
+
+
+    // Long division on the terms of a sparse dividend, kept in a map from exponent to coefficient, the highest first.
+    // Every step is computed as in longDivision, so both give the same result
+    PolynomialDivisionResult sparseLongDivision(Polynomial dividend, char resultLiteral) {
+        TreeMap<Integer, Double> remainder = new TreeMap<>(Comparator.reverseOrder());
+        for (Term term : dividend.termList())
+            remainder.put(term.getExponent(), term.getCoefficient());
+
+        ArrayList<Term> quotient = new ArrayList<>();
+        while (!remainder.isEmpty() && remainder.firstKey() >= degree) {
+            Map.Entry<Integer, Double> lead = remainder.pollFirstEntry(); // cancelled by the divisor's leading term
+            double coefficient = lead.getValue();
+            if (coefficient == 0)
+                continue;
+
+            double quotientCoefficient = coefficient * leadInverse;
+            quotientCoefficient += Math.fma(-quotientCoefficient, leadCoefficient, coefficient) * leadInverse;
+
+            int shift = lead.getKey() - degree;
+            quotient.add(new Term(quotientCoefficient, resultLiteral, shift));
+            for (int i = 0; i < exponents.length; i++)
+                remainder.merge(exponents[i] + shift, -quotientCoefficient * coefficients[i], Double::sum);
+        }
+
+        ArrayList<Term> remainderTerms = new ArrayList<>();
+        for (Map.Entry<Integer, Double> entry : remainder.entrySet())
+            if (entry.getValue() != 0)
+                remainderTerms.add(new Term(entry.getValue(), resultLiteral, entry.getKey()));
+
+        return new PolynomialDivisionResult(Polynomial.fromSortedTerms(quotient, resultLiteral),
+                Polynomial.fromSortedTerms(remainderTerms, resultLiteral));
+    }
+
+
+    // Division through the reversed Polynomials: rev(A) = rev(B) rev(Q) + x^(n-m+1) rev(R),
+    // so rev(Q) = rev(A) / rev(B) mod x^(n-m+1). Returns null if the remainder cross-check fails.
+    PolynomialDivisionResult newtonDivision(Polynomial dividend, char resultLiteral) {
+        NewtonDivisor newton = newtonDivisor();
+        double[] dense = newton.dense;
+        double[] a = dividend.toCoefficientArray();
+        int quotientLength = a.length - dense.length + 1;
+
+        double[] inverse = Arrays.copyOf(reversedInverse(quotientLength), quotientLength);
+        double[] reversedQuotient = PolynomialDivider.truncatedProduct(
+                PolynomialDivider.reverse(a, quotientLength), inverse, quotientLength);
+
+        double[] quotient = new double[quotientLength];
+        for (int i = 0; i < quotientLength; i++)
+            quotient[i] = reversedQuotient[quotientLength - 1 - i];
+
+        // A monic integer divisor of an integer dividend has an integer quotient, rounding removes the noise
+        if (Math.abs(leadCoefficient) == 1 && newton.integral && PolynomialDivider.isIntegral(a))
+            for (int i = 0; i < quotientLength; i++)
+                quotient[i] = Math.rint(quotient[i]) + 0.0;
+
+        double[] product = PolynomialMultiplier.multiply(dense, quotient);
+        double[] remainder = new double[a.length];
+        for (int i = 0; i < a.length; i++)
+            remainder[i] = a[i] - product[i];
+
+        // Cross-check the remainder degree against the divisor, an iteration that blew up is never accepted
+        double scale = PolynomialDivider.maximumMagnitude(a)
+                + newton.maximumMagnitude * PolynomialDivider.maximumMagnitude(quotient) * dense.length;
+        if (!PolynomialDivider.isFinite(quotient) || !PolynomialDivider.isFinite(remainder)
+                || !PolynomialDivider.isNegligible(remainder, degree, scale))
+            return null;
+
+        return new PolynomialDivisionResult(Polynomial.fromCoefficients(quotient, resultLiteral),
+                PolynomialDivider.remainderPolynomial(remainder, 0, degree - 1, resultLiteral));
+    }
+
+
+    // Returns the inverse of the reversed divisor with at least length coefficients, extending the cache if needed
+    private double[] reversedInverse(int length) {
+        double[] inverse = reversedInverse;
+        if (inverse.length < length) {
+            inverse = PolynomialDivider.inverse(newtonDivisor().reversed, inverse,
+                    Integer.highestOneBit(length - 1) << 1);
+            reversedInverse = inverse;
+        }
+        return inverse;
+    }
+
+    // Returns the divisor as Newton's iteration needs it, building it on the first call
+    private NewtonDivisor newtonDivisor() {
+        NewtonDivisor newton = newtonDivisor;
+        if (newton == null) {
+            double[] dense = new double[degree + 1];
+            dense[degree] = leadCoefficient;
+            for (int i = 0; i < exponents.length; i++)
+                dense[exponents[i]] = coefficients[i];
+            newtonDivisor = newton = new NewtonDivisor(dense);
+        }
+        return newton;
+    }
+
+
+    // The divisor indexed by exponent and reversed, for a divisor without negative exponents
+    private static final class NewtonDivisor {
+        private final double[] dense;
+        private final double[] reversed;
+        private final boolean integral;
+        private final double maximumMagnitude;
+
+        NewtonDivisor(double[] dense) {
+            this.dense = dense;
+            this.reversed = PolynomialDivider.reverse(dense, dense.length);
+            this.integral = PolynomialDivider.isIntegral(dense);
+            this.maximumMagnitude = PolynomialDivider.maximumMagnitude(dense);
+        }
+    }
+}
@@ -200,7 +200,7 @@ public class Term implements Comparable<Term>{
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Term)) return false; // an ImmutableTerm equals the Term with the same values
 
         Term term = (Term) o;
 
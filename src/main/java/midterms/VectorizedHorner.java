@@ -0,0 +1,77 @@
+package midterms;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD counterpart of the batch loop in {@link HornerEvaluator}, built on the Vector API.
+ * Each lane runs exactly the same sequence of multiplications and additions as the scalar kernel,
+ * so both produce bit-identical results.
+ * <p>
+ * This class must only be loaded when the {@code jdk.incubator.vector} module is present,
+ * see {@link HornerEvaluator#VECTOR_API_AVAILABLE}.
+ */
+final class VectorizedHorner {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorizedHorner() {
+    }
+
+
+    /**
+     * Evaluates the whole vectors of values in the range [from, to).
+     *
+     * @param coefficients the coefficients in descending exponent order, never empty
+     * @param gaps the exponent gaps between consecutive coefficients
+     * @param lowestExponent the exponent of the last coefficient
+     * @param dense true if all gaps are 1
+     * @param values the values of the literal
+     * @param results where the results are written
+     * @param from the first index, inclusive
+     * @param to the last index, exclusive
+     * @return the index of the first value that was not evaluated, to be finished by the scalar kernel
+     */
+    static int evaluate(double[] coefficients, int[] gaps, int lowestExponent, boolean dense,
+                        double[] values, double[] results, int from, int to) {
+        int upperBound = from + SPECIES.loopBound(to - from);
+        int i = from;
+
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector value = DoubleVector.fromArray(SPECIES, values, i);
+            DoubleVector result = DoubleVector.broadcast(SPECIES, coefficients[0]);
+
+            if (dense) {
+                for (int j = 1; j < coefficients.length; j++)
+                    result = result.mul(value).add(coefficients[j]);
+            } else {
+                for (int j = 1; j < coefficients.length; j++)
+                    result = result.mul(power(value, gaps[j])).add(coefficients[j]);
+            }
+
+            if (lowestExponent != 0)
+                result = result.mul(power(value, lowestExponent));
+
+            result.intoArray(results, i);
+        }
+
+        return i;
+    }
+
+    // Lane-wise HornerEvaluator.power, with the same order of operations
+    private static DoubleVector power(DoubleVector value, int exponent) {
+        if (exponent == 1)
+            return value;
+        if (exponent < 0)
+            return DoubleVector.broadcast(SPECIES, 1).div(power(value, -exponent));
+
+        DoubleVector result = DoubleVector.broadcast(SPECIES, 1);
+        DoubleVector base = value;
+        while (exponent != 0) {
+            if ((exponent & 1) != 0)
+                result = result.mul(base);
+            base = base.mul(base);
+            exponent >>>= 1;
+        }
+        return result;
+    }
+}
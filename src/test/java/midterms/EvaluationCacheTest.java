@@ -0,0 +1,98 @@
+package midterms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationCacheTest {
+
+    @Test
+    void fingerprintTest() {
+        Polynomial parsed = PolynomialParser.parse("3x^2 + 2x + 1");
+        ArrayList<Term> terms = new ArrayList<>();
+        terms.add(new Term(1, 'x', 0));
+        terms.add(new Term(3, 'x', 2));
+        terms.add(new Term(2, 'x', 1));
+        assertEquals(parsed.getFingerprint(), new Polynomial(terms).getFingerprint());
+        assertEquals(parsed.getFingerprint(), new Polynomial(parsed).getFingerprint());
+
+        // The same terms in the sparse form
+        Polynomial sparse = PolynomialParser.parse("x^100 + 3x^2 + 2x + 1");
+        assertEquals(parsed.getFingerprint(), sparse.decreaseBy(PolynomialParser.parse("x^100")).getFingerprint());
+
+        assertNotEquals(parsed.getFingerprint(), PolynomialParser.parse("3y^2 + 2y + 1").getFingerprint());
+        assertNotEquals(parsed.getFingerprint(), PolynomialParser.parse("3x^2 + 2x + 2").getFingerprint());
+        assertEquals(PolynomialParser.parse("5").getFingerprint(),
+                PolynomialParser.parse("x + 5").decreaseBy(PolynomialParser.parse("x")).getFingerprint());
+
+        long before = parsed.getFingerprint();
+        parsed.addTerm(1, 'x', 3);
+        assertNotEquals(before, parsed.getFingerprint());
+    }
+
+
+    @Test
+    void evictionTest() {
+        EvaluationCache cache = new EvaluationCache(100);
+        Polynomial polynomial = PolynomialParser.parse("x^3 - 2x + 1");
+        Polynomial other = PolynomialParser.parse("x^2 - 1");
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            double value = random.nextInt(150); // more values than the cache holds
+            Polynomial evaluated = i % 3 == 0 ? other : polynomial;
+            assertEquals(evaluated.evaluate(value), cache.evaluate(evaluated, value));
+        }
+        assertEquals(100, cache.size());
+        assertEquals(100_000, cache.getHitCount() + cache.getMissCount());
+        assertEquals(cache.getMissCount() - 100, cache.getEvictionCount());
+        assertTrue(cache.getHitCount() > 0);
+
+        assertEquals(cache.getHitCount(), cache.getHitCount(polynomial) + cache.getHitCount(other));
+        double rate = cache.getHitRate(PolynomialParser.parse("x^3 - 2x + 1"));
+        assertTrue(rate > 0 && rate < 1, String.valueOf(rate));
+        assertEquals(0, cache.getHitRate(PolynomialParser.parse("x")));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertTrue(cache.getSummary().startsWith("evaluation cache size=0/100"));
+        assertThrows(IllegalArgumentException.class, () -> new EvaluationCache(-1));
+    }
+
+
+    @Test
+    void concurrentEvaluateTest() throws InterruptedException {
+        EvaluationCache cache = new EvaluationCache(1000);
+        Polynomial polynomial = PolynomialParser.parse("2x^2 + x - 3");
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 50_000; i++) {
+                        double value = random.nextInt(3000) / 4.0;
+                        if (cache.evaluate(polynomial, value) != polynomial.evaluate(value))
+                            throw new AssertionError(value);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertNull(failure.get());
+        assertEquals(200_000, cache.getHitCount() + cache.getMissCount());
+        assertEquals(1000, cache.size());
+    }
+}
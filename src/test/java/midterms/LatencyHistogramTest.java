@@ -0,0 +1,92 @@
+package midterms;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentileTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (long value = 1; value <= 100_000; value++)
+            histogram.record(value * 1_000);
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMax());
+
+        // Within the 1/16 precision of the buckets, never below the exact value
+        for (double percentile : new double[] {50, 99, 99.9}) {
+            long exact = (long) (percentile * 1_000_000);
+            long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(value >= exact && value <= exact + exact / 16, percentile + ": " + value);
+        }
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+
+        // Every value falls in a bucket that holds it
+        for (long value : new long[] {0, 31, 32, 33, 1_000_003, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.highestValueOf(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.highestValueOf(bucket - 1));
+        }
+    }
+
+
+    @Test
+    void concurrentRecordTest() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++)
+                    histogram.record(i);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(4L * 99_999 * 100_000 / 2, histogram.getSum());
+        assertEquals(99_999, histogram.getMax());
+    }
+
+
+    @Test
+    void statsTest() throws IOException {
+        OperationStats.reset();
+        BatchProcessor processor = new BatchProcessor();
+        StringWriter output = new StringWriter();
+        processor.process(new BufferedReader(new StringReader("ADD x ; 2x\nEVAL x + 1 @ 2\nSTATS\n")), output);
+
+        String stats = output.toString().split("\n")[2];
+        assertTrue(stats.contains("add/arithmetic count=1"), stats);
+        assertTrue(stats.contains("evaluate/arithmetic count=1"), stats);
+        assertTrue(stats.contains("polynomial/parse count=3"), stats);
+        assertTrue(OperationStats.getReport().startsWith("operation"));
+
+        Path file = Files.createTempFile("metrics", ".prom");
+        try {
+            OperationStats.writePrometheus(file);
+            String metrics = Files.readString(file);
+            assertTrue(metrics.contains("# TYPE polynomial_stage_latency_seconds summary\n"));
+            assertTrue(metrics.contains(
+                    "polynomial_stage_latency_seconds_count{operation=\"polynomial\",stage=\"parse\"} 3\n"));
+            assertTrue(metrics.contains("{operation=\"add\",stage=\"arithmetic\",quantile=\"0.999\"} "));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
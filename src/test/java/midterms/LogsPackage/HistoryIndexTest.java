@@ -0,0 +1,103 @@
+package midterms.LogsPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryIndexTest {
+
+    @Test
+    void incrementalRefreshTest() throws IOException {
+        Path file = Files.createTempFile("history", ".bin");
+        Files.delete(file);
+        HistoryIndex index = new HistoryIndex(file);
+        try {
+            index.refresh();
+            assertEquals(0, index.size());
+
+            append(file, new Log("one line", new Date(0)), new Log("first\nsecond\nthird", new Date(60_000)));
+            index.refresh();
+            assertEquals(2, index.size());
+            assertTrue(index.read(0, 1).getFirst().toString().endsWith("\none line"));
+            assertTrue(index.read(1, 5).getFirst().toString().endsWith("\nfirst\nsecond\nthird"));
+
+            // An unfinished record isn't indexed until it is finished, or dropped
+            long length = Files.size(file);
+            append(file, new Log("appended", new Date(120_000)));
+            byte[] last = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(last, (int) length + 6));
+            index.refresh();
+            assertEquals(2, index.size());
+            assertEquals(6, index.truncateIncompleteRecord());
+            assertEquals(length, Files.size(file));
+
+            append(file, new Log("appended", new Date(120_000)));
+            index.refresh();
+            assertEquals(3, index.size());
+            assertEquals(120_000, index.read(2, 1).getFirst().getEpochMillis());
+
+            // A new HistoryIndex picks up the index file as it is
+            HistoryIndex reopened = new HistoryIndex(file);
+            reopened.refresh();
+            assertEquals(3, reopened.size());
+            assertEquals(index.read(0, 3).toString(), reopened.read(0, 3).toString());
+            assertEquals(List.of(), reopened.read(3, 5));
+            assertThrows(IndexOutOfBoundsException.class, () -> reopened.read(4, 1));
+        } finally {
+            Files.deleteIfExists(index.getIndexFile());
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    void rebuildTest() throws IOException {
+        Path file = Files.createTempFile("history", ".bin");
+        Files.delete(file);
+        HistoryIndex index = new HistoryIndex(file);
+        try {
+            for (int i = 0; i < 4; i++)
+                append(file, new Log("entry " + i, new Date(0)));
+            index.refresh();
+            assertEquals(4, index.size());
+
+            // Replaced by a shorter file, the index describes more than there is
+            Files.delete(file);
+            append(file, new Log("replaced", new Date(0)));
+            index.refresh();
+            assertEquals(1, index.size());
+            assertTrue(index.read(0, 1).getFirst().toString().endsWith("\nreplaced"));
+
+            // A corrupted index is rebuilt too
+            Files.write(index.getIndexFile(), new byte[] {1, 2, 3});
+            HistoryIndex reopened = new HistoryIndex(file);
+            reopened.refresh();
+            assertEquals(1, reopened.size());
+
+            // A file of the old text format is refused
+            Files.writeString(file, "September 24, 2024 06:05 PM\nlog\n", StandardOpenOption.TRUNCATE_EXISTING);
+            assertThrows(IOException.class, reopened::refresh);
+        } finally {
+            Files.deleteIfExists(index.getIndexFile());
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    private static void append(Path file, Log... logs) {
+        try (HistoryWriter writer = new HistoryWriter(file)) {
+            for (Log log : logs)
+                writer.append(log);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+}
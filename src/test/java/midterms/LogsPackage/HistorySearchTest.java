@@ -0,0 +1,112 @@
+package midterms.LogsPackage;
+
+import midterms.Polynomial;
+import midterms.PolynomialParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistorySearchTest {
+
+    @Test
+    void searchTest() throws IOException {
+        Path directory = Files.createTempDirectory("history");
+        Path file = directory.resolve("History.bin");
+        try {
+            // Rotated every few logs, and a segment flushed for every log, so archives and merges are searched
+            HistoryRotation rotation = new HistoryRotation(2_000, Long.MAX_VALUE, 100, Long.MAX_VALUE);
+            HistorySearch search = new HistorySearch(file);
+            try (HistoryWriter writer = new HistoryWriter(file, 8, 1, 10, HistoryWriter.FsyncPolicy.NEVER,
+                    rotation, search)) {
+                for (int i = 0; i < 200; i++)
+                    writer.append(log(i));
+            }
+            assertTrue(HistoryRotation.archives(file).size() > 3);
+            assertEquals(200, search.size());
+            assertTrue(search.getSegmentCount() < 2 * HistorySearch.MERGE_FACTOR);
+            assertSearches(search);
+
+            // Reopened, nothing is left to catch up; deleted, the whole history is indexed again
+            HistoryIndex index = new HistoryIndex(file);
+            index.refresh();
+            HistorySearch reopened = new HistorySearch(file);
+            reopened.catchUp(index);
+            assertEquals(200, reopened.size());
+            assertSearches(reopened);
+
+            delete(file.resolveSibling("History.bin.search"));
+            HistorySearch rebuilt = new HistorySearch(file);
+            rebuilt.catchUp(index);
+            assertEquals(200, rebuilt.size());
+            assertSearches(rebuilt);
+        } finally {
+            delete(directory);
+        }
+    }
+
+
+    @Test
+    void queryTest() {
+        HistoryQuery query = HistoryQuery.parse("op=addition; operand=3x + 5x^2 + 1; result=27");
+        assertEquals(3, query.terms().size());
+        assertEquals(List.of("operand:5x^2 + 3x + 1"), query.terms().get(1)); // the canonical form
+        assertEquals(2, query.terms().get(2).size()); // an evaluation result, or a constant Polynomial
+
+        assertThrows(IllegalArgumentException.class, () -> HistoryQuery.parse("colour=red"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryQuery.parse("op=power"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryQuery.parse("from=yesterday"));
+        assertTrue(HistoryQuery.parse("to=2024-09-24").getToMillis()
+                > HistoryQuery.parse("from=2024-09-24").getFromMillis());
+    }
+
+
+    // Log i evaluates x + i % 10 at 2 if i is even, and adds x^2 to it otherwise, at second i
+    private static Log log(int i) {
+        Polynomial polynomial = PolynomialParser.parse("x + " + (i % 10));
+        if (i % 2 == 0)
+            return Log.ofEvaluation(polynomial, 2, polynomial.evaluate(2), i * 1000L);
+        Polynomial square = PolynomialParser.parse("x^2");
+        return Log.ofOperation(Log.Operation.ADD, polynomial, square, polynomial.addTo(square), i * 1000L);
+    }
+
+    private static void assertSearches(HistorySearch search) throws IOException {
+        assertEquals(100, read(search, "op=evaluation").size());
+        assertEquals(100, read(search, "op=add").size());
+
+        // x + 3 is log 3, 13, 23... all additions
+        List<Log> found = read(search, "op=add; operand=x + 3");
+        assertEquals(20, found.size());
+        assertEquals(3_000, found.getFirst().getEpochMillis());
+        assertEquals(193_000, found.getLast().getEpochMillis());
+        assertEquals(0, read(search, "op=evaluation; operand=x + 3").size());
+
+        // 2 + 4 is the result of log 4, 14, 24...
+        assertEquals(20, read(search, "result=6").size());
+        assertEquals(20, read(search, "result=x^2 + x + 5").size());
+
+        // The date range alone, and with the other filters
+        HistoryQuery range = new HistoryQuery(null, null, null, 50_000, 60_000);
+        assertEquals(10, search.search(range).read(0, 100).size());
+        HistoryQuery evaluations = new HistoryQuery(Log.Operation.EVALUATE, null, null, 50_000, 60_000);
+        assertEquals(5, search.search(evaluations).read(0, 100).size());
+    }
+
+    private static List<Log> read(HistorySearch search, String query) throws IOException {
+        HistorySearch.Matches matches = search.search(HistoryQuery.parse(query));
+        return matches.read(0, (int) matches.size());
+    }
+
+    private static void delete(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(file);
+        }
+    }
+}
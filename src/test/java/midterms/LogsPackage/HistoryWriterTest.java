@@ -0,0 +1,172 @@
+package midterms.LogsPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryWriterTest {
+
+    @Test
+    void syncAndCloseTest() throws IOException {
+        Path file = Files.createTempFile("history", ".bin");
+        HistoryIndex index = new HistoryIndex(file);
+        try {
+            HistoryWriter writer = new HistoryWriter(file, 8, 4, 10_000, HistoryWriter.FsyncPolicy.ON_CLOSE);
+            for (int i = 0; i < 3; i++)
+                writer.append(new Log("entry " + i, new Date(0)));
+
+            // Less than a batch and long before the flush interval, sync must still write them
+            writer.sync();
+            index.refresh();
+            assertEquals(3, index.size());
+
+            // More than the queue holds, append waits instead of dropping logs
+            for (int i = 3; i < 100; i++)
+                writer.append(new Log("entry " + i, new Date(0)));
+            writer.close();
+            writer.close();
+
+            index.refresh();
+            assertEquals(100, index.size());
+            assertTrue(index.read(99, 1).getFirst().toString().endsWith("\nentry 99"));
+            assertThrows(IllegalStateException.class, () -> writer.append(new Log("late", new Date(0))));
+        } finally {
+            Files.deleteIfExists(index.getIndexFile());
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    void flushIntervalTest() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("history", ".bin");
+        HistoryIndex index = new HistoryIndex(file);
+        try (HistoryWriter writer = new HistoryWriter(file, 64, 32, 20, HistoryWriter.FsyncPolicy.NEVER)) {
+            long empty = Files.size(file); // just the magic number
+            writer.append(new Log("entry", new Date(0)));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (Files.size(file) == empty && System.currentTimeMillis() < deadline)
+                Thread.sleep(5);
+            index.refresh();
+            assertEquals(1, index.size());
+        } finally {
+            Files.deleteIfExists(index.getIndexFile());
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    void rotationTest() throws IOException {
+        Path directory = Files.createTempDirectory("history");
+        Path file = directory.resolve("History.bin");
+        HistoryIndex index = new HistoryIndex(file);
+        try {
+            // About 4 logs per file, at most 3 archives kept
+            HistoryRotation rotation = new HistoryRotation(150, Long.MAX_VALUE, 3, Long.MAX_VALUE);
+            try (HistoryWriter writer = new HistoryWriter(file, 8, 1, 10, HistoryWriter.FsyncPolicy.NEVER, rotation)) {
+                for (int i = 0; i < 40; i++)
+                    writer.append(new Log("entry " + i, new Date(System.currentTimeMillis())));
+            }
+
+            assertEquals(3, HistoryRotation.archives(file).size());
+            index.refresh();
+            List<Long> numbers = new ArrayList<>();
+            try (HistoryReader reader = new HistoryReader(index, file)) {
+                while (reader.hasNext()) {
+                    String log = reader.next().toString();
+                    numbers.add(Long.parseLong(log.substring(log.lastIndexOf(' ') + 1)));
+                }
+            }
+
+            // The oldest archives were deleted, what is left is in order and ends with the last log
+            assertTrue(numbers.size() > 3 && numbers.size() < 40);
+            assertEquals(39, numbers.getLast());
+            for (int i = 1; i < numbers.size(); i++)
+                assertEquals(numbers.get(i - 1) + 1, numbers.get(i));
+
+            // The history file rotates on age alone too
+            HistoryRotation byAge = new HistoryRotation(Long.MAX_VALUE, 1, 10, Long.MAX_VALUE);
+            try (HistoryWriter writer = new HistoryWriter(file, 8, 1, 10, HistoryWriter.FsyncPolicy.NEVER, byAge)) {
+                writer.append(new Log("entry 40", new Date(System.currentTimeMillis())));
+            }
+            assertEquals(4, HistoryRotation.archives(file).size());
+
+            // A renamed history file left by a crash is compressed on the next start
+            Files.copy(file, directory.resolve("History.bin.1"));
+            new HistoryWriter(file, 8, 1, 10, HistoryWriter.FsyncPolicy.NEVER, byAge).close();
+            assertEquals(5, HistoryRotation.archives(file).size());
+            assertFalse(Files.exists(directory.resolve("History.bin.1")));
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : files.toList())
+                    Files.delete(path);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void oldLogsTest() throws IOException {
+        Path directory = Files.createTempDirectory("history");
+        Path file = directory.resolve("History.bin");
+        HistoryIndex index = new HistoryIndex(file);
+        try {
+            // Logs imported from 30 days ago don't make a new history file older than the maximum age
+            long monthAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30);
+            try (HistoryWriter writer = new HistoryWriter(file, 1024, 256, 10, HistoryWriter.FsyncPolicy.NEVER,
+                    HistoryRotation.DEFAULT)) {
+                for (int i = 0; i < 10_240; i++)
+                    writer.append(new Log("entry " + i, new Date(monthAgo + i)));
+            }
+
+            assertEquals(0, HistoryRotation.archives(file).size());
+            index.refresh();
+            int count = 0;
+            try (HistoryReader reader = new HistoryReader(index, file)) {
+                while (reader.hasNext()) {
+                    String log = reader.next().toString();
+                    assertEquals(count, Long.parseLong(log.substring(log.lastIndexOf(' ') + 1)));
+                    count++;
+                }
+            }
+            assertEquals(10_240, count);
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : files.toList())
+                    Files.delete(path);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void failureTest() throws IOException {
+        Path directory = Files.createTempDirectory("history");
+        Path file = directory.resolve("History.bin");
+        // Rotates after every log, which fails once the directory is gone and stops the thread
+        HistoryRotation rotation = new HistoryRotation(1, Long.MAX_VALUE, 3, Long.MAX_VALUE);
+        HistoryWriter writer = new HistoryWriter(file, 2, 1, 10, HistoryWriter.FsyncPolicy.NEVER, rotation);
+        Files.delete(file);
+        Files.delete(directory);
+
+        // Appending fails instead of waiting forever for a thread that no longer empties the queue
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(UncheckedIOException.class, () -> {
+            for (int i = 0; i < 100; i++)
+                writer.append(new Log("entry " + i, new Date(System.currentTimeMillis())));
+        }));
+        assertThrows(UncheckedIOException.class, writer::close);
+    }
+}
@@ -0,0 +1,160 @@
+package midterms.LogsPackage;
+
+import midterms.Polynomial;
+import midterms.PolynomialDivisionResult;
+import midterms.PolynomialParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTest {
+
+    @Test
+    void recordTest() throws IOException {
+        Polynomial first = PolynomialParser.parse("5x^2 + 3x + 1");
+        Polynomial second = PolynomialParser.parse("x - 0.1");
+        List<Log> logs = List.of(
+                Log.ofEvaluation(first, 2, first.evaluate(2), 1_727_172_300_000L),
+                Log.ofOperation(Log.Operation.ADD, first, second, first.addTo(second), 1L),
+                Log.ofOperation(Log.Operation.MULTIPLY, first, second, first.multiplyBy(second), 2L),
+                Log.ofOperation(Log.Operation.DIVIDE, first, second, first.divideBy(second), 3L),
+                Log.ofOperation(Log.Operation.DIVIDE, second, first, second.divideBy(first), 4L));
+
+        for (Log log : logs) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            log.writeBody(new DataOutputStream(body));
+            Log read = Log.read(ByteBuffer.wrap(body.toByteArray()));
+
+            assertEquals(log.getOperation(), read.getOperation());
+            assertEquals(log.getEpochMillis(), read.getEpochMillis());
+            assertEquals(log.toString(), read.toString());
+            // Far smaller than the banner it renders
+            assertTrue(body.size() * 3 < log.render().getBytes(StandardCharsets.UTF_8).length);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> Log.read(ByteBuffer.wrap(new byte[] {1, 0})));
+    }
+
+
+    @Test
+    void snapshotTest() throws IOException {
+        Polynomial polynomial = PolynomialParser.parse("x");
+        Polynomial divisor = PolynomialParser.parse("x + 1");
+        PolynomialDivisionResult quotient = polynomial.divideBy(divisor);
+        Log evaluation = Log.ofEvaluation(polynomial, 2, polynomial.evaluate(2), 1L);
+        Log division = Log.ofOperation(Log.Operation.DIVIDE, polynomial, divisor, quotient, 2L);
+        String evaluationText = evaluation.toString();
+        String divisionText = division.toString();
+
+        Path file = Files.createTempFile("history", ".bin");
+        Files.delete(file);
+        HistoryIndex index = new HistoryIndex(file);
+        try {
+            // The operands and the results change after they are queued, before the writer takes them
+            try (HistoryWriter writer = new HistoryWriter(file, 8, 4, 10_000, HistoryWriter.FsyncPolicy.NEVER)) {
+                writer.append(evaluation);
+                writer.append(division);
+                polynomial.addTerm(7, 'x', 3);
+                divisor.addTerm(2, 'x', 2);
+                quotient.getQuotient().addTerm(5, 'x', 4);
+            }
+
+            index.refresh();
+            List<Log> written = index.read(0, 10);
+            assertEquals(evaluationText, written.get(0).toString());
+            assertEquals(divisionText, written.get(1).toString());
+            assertEquals(evaluationText, evaluation.toString());
+            assertFalse(written.get(0).toString().contains("7x^3"));
+        } finally {
+            Files.deleteIfExists(index.getIndexFile());
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    void legacyImportTest() throws IOException {
+        Polynomial polynomial = PolynomialParser.parse("5x^2 + 3x + 1");
+        Polynomial divisor = PolynomialParser.parse("x + 1");
+        List<Log> logs = List.of(
+                Log.ofEvaluation(polynomial, 2, 27, 1_727_172_300_000L),
+                Log.ofOperation(Log.Operation.SUBTRACT, polynomial, polynomial,
+                        polynomial.decreaseBy(polynomial), 1_727_172_360_000L),
+                Log.ofOperation(Log.Operation.DIVIDE, polynomial, divisor,
+                        polynomial.divideBy(divisor), 1_727_172_420_000L),
+                new Log("not a banner", new Date(1_727_172_480_000L)));
+
+        StringBuilder legacy = new StringBuilder();
+        for (Log log : logs)
+            legacy.append(log).append('\n');
+        legacy.append(logs.getFirst().toString().replace("Polynomial: ", "Polynomial: garbage ")).append('\n');
+
+        Path legacyFile = Files.createTempFile("Logs", ".txt");
+        Path file = Files.createTempFile("history", ".bin");
+        Files.delete(file);
+        HistoryIndex index = new HistoryIndex(file);
+        try {
+            Files.writeString(legacyFile, legacy, StandardCharsets.UTF_8);
+            try (HistoryWriter writer = new HistoryWriter(file)) {
+                assertEquals(5, LegacyLogImporter.importLogs(legacyFile, writer));
+            }
+
+            index.refresh();
+            List<Log> imported = index.read(0, 10);
+            assertEquals(5, imported.size());
+            for (int i = 0; i < logs.size(); i++) {
+                assertEquals(logs.get(i).getOperation(), imported.get(i).getOperation());
+                assertEquals(logs.get(i).toString(), imported.get(i).toString());
+            }
+            assertEquals(Log.Operation.TEXT, imported.get(4).getOperation()); // kept as it was
+            assertTrue(imported.get(4).render().contains("garbage"));
+        } finally {
+            Files.deleteIfExists(index.getIndexFile());
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(legacyFile);
+        }
+    }
+
+
+    @Test
+    void legacyImportFileTest() throws IOException {
+        Polynomial polynomial = PolynomialParser.parse("5x^2 + 3x + 1");
+        StringBuilder legacy = new StringBuilder();
+        for (int i = 0; i < 3; i++)
+            legacy.append(Log.ofEvaluation(polynomial, i, polynomial.evaluate(i), 1_727_172_300_000L + i)).append('\n');
+
+        Path directory = Files.createTempDirectory("history");
+        Path legacyFile = directory.resolve("Logs.txt");
+        Path file = directory.resolve("History.bin");
+        Path partial = directory.resolve("History.bin.import");
+        HistoryIndex index = new HistoryIndex(file);
+        try {
+            Files.writeString(legacyFile, legacy, StandardCharsets.UTF_8);
+            Files.writeString(partial, "left by a crash");
+
+            // The half-written file of an interrupted import is replaced, the history file appears complete
+            assertEquals(3, LegacyLogImporter.importFile(legacyFile, file));
+            assertFalse(Files.exists(partial));
+            index.refresh();
+            assertEquals(3, index.read(0, 10).size());
+
+            assertThrows(FileAlreadyExistsException.class, () -> LegacyLogImporter.importFile(legacyFile, file));
+        } finally {
+            Files.deleteIfExists(index.getIndexFile());
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(legacyFile);
+            Files.delete(directory);
+        }
+    }
+}
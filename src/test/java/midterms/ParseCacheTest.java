@@ -0,0 +1,71 @@
+package midterms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+
+    @Test
+    void lruTest() {
+        ParseCache cache = new ParseCache(2);
+        Polynomial first = cache.parse("x^2 + 1");
+        assertSame(first, cache.parse("  x^2 + 1 "));
+        assertEquals("x^2 + 1", first.toString());
+
+        cache.parse("x + 1");
+        cache.parse("x^2 + 1"); // x + 1 is now the least recently used
+        cache.parse("x - 1");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(first, cache.parse("x^2 + 1"));
+        assertNotSame(cache.parse("x + 1"), cache.parse("x - 1"));
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(5, cache.getMissCount());
+        assertThrows(PolynomialParseException.class, () -> cache.parse("x +"));
+        assertTrue(cache.getSummary().startsWith("parse cache size=2/2 hits=3"));
+
+        ParseCache disabled = new ParseCache(0);
+        assertNotSame(disabled.parse("x"), disabled.parse("x"));
+        assertEquals(0, disabled.size());
+        assertThrows(IllegalArgumentException.class, () -> new ParseCache(-1));
+    }
+
+
+    @Test
+    void concurrentParseTest() throws InterruptedException {
+        ParseCache cache = new ParseCache(1000);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20_000; i++) {
+                        int exponent = i % 2000;
+                        Polynomial polynomial = cache.parse("x^" + exponent + " + 1");
+                        if (polynomial.getDegree() != exponent)
+                            throw new AssertionError(exponent + ": " + polynomial);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertNull(failure.get());
+        assertEquals(80_000, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.size() <= 1000);
+        // A miss that lost the race to another thread isn't stored, so it isn't evicted either
+        assertTrue(cache.getEvictionCount() > 0);
+        assertTrue(cache.getEvictionCount() <= cache.getMissCount() - cache.size());
+    }
+}
@@ -1,12 +1,24 @@
 package midterms;
 
+import midterms.LogsPackage.HistoryRotation;
+import midterms.LogsPackage.Log;
+import midterms.LogsPackage.Logger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -60,4 +72,98 @@ class PolynomialEvaluatorTest {
         assertEquals("-5x^2 - 3x + 1", result);
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void constructPolynomialWithDecimalsTest() {
+        PolynomialEvaluator polynomialEvaluator = new PolynomialEvaluator();
+
+        Polynomial polynomial = polynomialEvaluator.constructPolynomialFromString("2.5x^3 -x + .25 + 1.5x^3");
+        assertEquals("4x^3 - x + 0.25", polynomial.toString());
+        assertEquals(0.1, PolynomialParser.parse("0.1").evaluate(0));
+        assertEquals(Double.parseDouble("3.14159265358979323846"), PolynomialParser.parse("3.14159265358979323846").evaluate(0));
+        assertEquals("2.5x^2", polynomialEvaluator.convertStringToTermGivenLiteral("2.5x^2", 'x').toString());
+    }
+
+
+    @Test
+    void parseErrorPositionTest() {
+        PolynomialParseException exception = assertThrows(PolynomialParseException.class,
+                () -> PolynomialParser.parse("3x^2 + 5y"));
+        assertEquals(8, exception.getPosition());
+
+        assertEquals(5, assertThrows(PolynomialParseException.class, () -> PolynomialParser.parse("3x^2 4")).getPosition());
+        assertEquals(4, assertThrows(PolynomialParseException.class, () -> PolynomialParser.parse("3x^ + 1")).getPosition());
+        assertEquals(4, assertThrows(PolynomialParseException.class, () -> PolynomialParser.parse("3x +")).getPosition());
+        assertThrows(IllegalArgumentException.class, () -> PolynomialParser.parse("5xy"));
+    }
+
+
+    @Test
+    void batchProcessTest() throws IOException {
+        String operations = """
+                # comment
+                EVAL 5x^2 + 3x + 1 @ 2
+                add x^2 + 1 ; 2x - 1
+
+                SUB 3x ; x
+                MUL x + 1 ; x - 1
+                DIV x^2 - 1 ; x + 1
+                DIV 1 ; 0
+                FOO x ; x
+                """;
+        BatchProcessor processor = new BatchProcessor();
+        StringWriter output = new StringWriter();
+        processor.process(new BufferedReader(new StringReader(operations)), output);
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(7, lines.length);
+        assertEquals("27.0", lines[0]);
+        assertEquals("x^2 + 2x", lines[1]);
+        assertEquals("2x", lines[2]);
+        assertEquals("x^2 - 1", lines[3]);
+        assertEquals("x - 1 ; 0", lines[4]);
+        assertTrue(lines[5].startsWith("ERROR "));
+        assertTrue(lines[6].startsWith("ERROR "));
+        assertEquals(7, processor.getOperationCount());
+        assertEquals(2, processor.getErrorCount());
+    }
+
+
+    @Test
+    void historyFailureTest() throws IOException {
+        Path directory = Files.createTempDirectory("history");
+        Path file = directory.resolve("History.bin");
+        PrintStream err = System.err;
+        ByteArrayOutputStream reported = new ByteArrayOutputStream();
+        try {
+            // Rotates after every batch, which fails once the directory is gone and stops the writer
+            Logger.setLogFile(file);
+            Logger.setRotation(new HistoryRotation(1, Long.MAX_VALUE, 3, Long.MAX_VALUE));
+            Logger.ReadData();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) // the search index is a directory
+                    Files.delete(path);
+            }
+            PolynomialEvaluator evaluator = new PolynomialEvaluator();
+            Polynomial polynomial = PolynomialParser.parse("x + 1");
+
+            // The session goes on, the failure is reported once
+            System.setErr(new PrintStream(reported, true, StandardCharsets.UTF_8));
+            for (int i = 0; i < 50; i++) {
+                evaluator.printAndLog(Log.ofEvaluation(polynomial, i, i + 1, System.currentTimeMillis()));
+                Thread.sleep(20);
+            }
+            assertThrows(UncheckedIOException.class, Logger::saveData); // as the session ends
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            System.setErr(err);
+            Logger.setRotation(HistoryRotation.DEFAULT);
+            Logger.setLogFile(Path.of("src/main/java/midterms/LogsPackage/History.bin"));
+        }
+
+        String output = reported.toString(StandardCharsets.UTF_8);
+        assertEquals(output.indexOf("no longer logged"), output.lastIndexOf("no longer logged"));
+        assertTrue(output.contains("no longer logged"));
+    }
+}
@@ -0,0 +1,77 @@
+package midterms;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolynomialEventsTest {
+
+    @Test
+    void eventsTest() throws IOException {
+        Path file = Files.createTempFile("polynomial", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] {"midterms.Parse", "midterms.Evaluate", "midterms.Add",
+                    "midterms.Multiply", "midterms.Divide"})
+                recording.enable(name).withThreshold(java.time.Duration.ZERO);
+            recording.start();
+
+            Polynomial dense = PolynomialParser.parse("x^3 + 2x^2 + 3x + 4");
+            Polynomial sparse = PolynomialParser.parse("x^100 + 1");
+            dense.evaluate(2);
+            dense.addTo(sparse);
+            dense.multiplyBy(dense);
+            sparse.multiplyBy(dense);
+            sparse.divideBy(dense);
+            dense.divideBy(sparse);
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent parse = find(events, "midterms.Parse", 0);
+            assertEquals(19, parse.getInt("length"));
+            assertEquals(3, parse.getInt("degree"));
+            assertEquals("dense", parse.getString("form"));
+            assertEquals("sparse", find(events, "midterms.Parse", 1).getString("form"));
+
+            assertEquals(1, find(events, "midterms.Evaluate", 0).getInt("valueCount"));
+            assertEquals("merge", find(events, "midterms.Add", 0).getString("algorithm"));
+
+            RecordedEvent product = find(events, "midterms.Multiply", 0);
+            assertEquals("schoolbook", product.getString("algorithm"));
+            assertEquals(6, product.getInt("resultDegree"));
+            assertEquals(7, product.getInt("resultTermCount"));
+            assertEquals("distribute", find(events, "midterms.Multiply", 1).getString("algorithm"));
+
+            RecordedEvent division = find(events, "midterms.Divide", 0);
+            assertEquals("long", division.getString("algorithm"));
+            assertEquals(100, division.getInt("firstDegree"));
+            assertEquals(4, division.getInt("secondTermCount"));
+            assertEquals(97, division.getInt("resultDegree"));
+            assertEquals("trivial", find(events, "midterms.Divide", 1).getString("algorithm"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    // The event of the type at the index, in the order they were committed on this thread
+    private static RecordedEvent find(List<RecordedEvent> events, String name, int index) {
+        List<RecordedEvent> found = events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .filter(event -> event.getThread() != null
+                        && event.getThread().getJavaThreadId() == Thread.currentThread().threadId())
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .toList();
+        assertTrue(found.size() > index, name + " " + index);
+        return found.get(index);
+    }
+}
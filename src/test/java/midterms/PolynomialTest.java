@@ -3,7 +3,14 @@ package midterms;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.DoubleStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -55,4 +62,435 @@ class PolynomialTest {
     }
 
 
-}
\ No newline at end of file
+    @Test
+    void evaluateTest() {
+        Polynomial polynomial = new Polynomial(terms);
+
+        assertEquals(-45.0, polynomial.evaluate(2));
+        assertEquals(1.0, polynomial.evaluate(0));
+    }
+
+
+    @Test
+    void evaluateSparseAndNegativeExponentsTest() {
+        ArrayList<Term> sparseTerms = new ArrayList<>(terms);
+        sparseTerms.add(new Term(2.5, 'x', 40));
+        sparseTerms.add(new Term(-7, 'x', -3));
+        Polynomial polynomial = new Polynomial(sparseTerms);
+
+        for (double value : new double[] {-1.7, -0.3, 0.5, 1.1, 3.9}) {
+            double perTerm = 0;
+            for (Term term : polynomial.getTerms())
+                perTerm += term.evaluate(value);
+
+            double bound = polynomial.evaluator().errorBound(value);
+            assertEquals(perTerm, polynomial.evaluate(value), bound);
+        }
+
+        // Powers of opposite signs that overflow each other once multiplied
+        Polynomial wide = new Polynomial(new ArrayList<>(List.of(new Term(1, 'x', 200), new Term(1, 'x', -200))));
+        for (double value : new double[] {10, 0.1, -10}) {
+            double perTerm = Math.pow(value, 200) + Math.pow(value, -200);
+            assertEquals(perTerm, wide.evaluate(value), wide.evaluator().errorBound(value));
+            assertEquals(1e200, wide.evaluate(value), 1e188);
+        }
+        double[] results = new double[3];
+        wide.evaluate(new double[] {10, 0.1, -10}, results);
+        assertArrayEquals(new double[] {wide.evaluate(10), wide.evaluate(0.1), wide.evaluate(-10)}, results);
+
+        Polynomial negative = new Polynomial(new ArrayList<>(List.of(new Term(1, 'x', -200), new Term(1, 'x', -400))));
+        assertEquals(1e-200, negative.evaluate(10), 1e-214);
+    }
+
+
+    @Test
+    void batchEvaluateTest() {
+        ArrayList<Term> sparseTerms = new ArrayList<>(terms);
+        sparseTerms.add(new Term(0.25, 'x', 9));
+        Polynomial dense = new Polynomial(terms);
+        Polynomial sparse = new Polynomial(sparseTerms);
+
+        double[] values = new double[1003];
+        for (int i = 0; i < values.length; i++)
+            values[i] = (i - 500) / 97.0;
+
+        for (Polynomial polynomial : new Polynomial[] {dense, sparse}) {
+            double[] results = new double[values.length];
+            polynomial.evaluate(values, results);
+            double[] streamed = polynomial.evaluate(DoubleStream.of(values)).toArray();
+
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(polynomial.evaluate(values[i]), results[i]);
+                assertEquals(polynomial.evaluate(values[i]), streamed[i]);
+            }
+        }
+    }
+
+
+    @Test
+    void parallelEvaluateTest() {
+        Polynomial polynomial = new Polynomial(terms);
+        polynomial.addTerm(new Term(-0.5, 'x', 6));
+
+        double[] values = new double[100_003];
+        for (int i = 0; i < values.length; i++)
+            values[i] = Math.sin(i);
+
+        double[] sequential = new double[values.length];
+        double[] parallel = new double[values.length];
+        polynomial.evaluate(values, sequential);
+
+        try (ParallelEvaluator evaluator = new ParallelEvaluator(4, 0)) {
+            evaluator.evaluate(polynomial, values, parallel);
+        }
+
+        assertArrayEquals(sequential, parallel);
+    }
+
+
+    @Test
+    void denseAndSparseFormsTest() {
+        Polynomial polynomial = new Polynomial(terms);
+        assertTrue(polynomial.isDense());
+        assertEquals(-3.0, polynomial.getCoefficient(1));
+        assertEquals(0.0, polynomial.getCoefficient(2));
+
+        polynomial.addTerm(new Term(4, 'x', 1000)); // far away, too sparse for an array
+        assertFalse(polynomial.isDense());
+        assertEquals(1000, polynomial.getDegree());
+        assertEquals("4x^1000 - 5x^3 - 3x + 1", polynomial.toString());
+
+        polynomial.addTerm(new Term(-4, 'x', 1000)); // cancels the leading term
+        assertTrue(polynomial.isDense());
+        assertEquals(3, polynomial.getDegree());
+        assertEquals("-5x^3 - 3x + 1", polynomial.toString());
+
+        polynomial.addTerm(new Term(2, 'x', -2));
+        assertFalse(polynomial.isDense());
+        assertEquals(4, polynomial.getTermCount());
+        assertEquals(2.0, polynomial.getCoefficient(-2));
+    }
+
+
+    @Test
+    void addAndSubtractTest() {
+        Polynomial dense = new Polynomial(terms);
+        Polynomial sparse = new Polynomial(terms);
+        sparse.addTerm(new Term(2, 'x', 50));
+
+        assertEquals("-10x^3 - 6x + 2", dense.addTo(dense).toString());
+        assertEquals("0", dense.decreaseBy(dense).toString());
+        assertEquals("2x^50 - 10x^3 - 6x + 2", sparse.addTo(dense).toString());
+        assertEquals("-2x^50", dense.decreaseBy(sparse).toString());
+        assertEquals(50, dense.decreaseBy(sparse).getDegree());
+    }
+
+
+    @Test
+    void karatsubaMultiplyTest() {
+        ArrayList<Term> longTerms = new ArrayList<>();
+        ArrayList<Term> shortTerms = new ArrayList<>();
+        for (int i = 0; i < 130; i++)
+            longTerms.add(new Term((i * 37) % 19 - 9, 'x', i));
+        for (int i = 0; i < 41; i++)
+            shortTerms.add(new Term((i * 11) % 7 - 3, 'x', i));
+        Polynomial first = new Polynomial(longTerms);
+        Polynomial second = new Polynomial(shortTerms);
+
+        double[] expected = new double[first.getDegree() + second.getDegree() + 1];
+        PolynomialMultiplier.schoolbook(first.toCoefficientArray(), 0, first.getDegree() + 1,
+                second.toCoefficientArray(), 0, second.getDegree() + 1, expected, 0);
+
+        int threshold = PolynomialMultiplier.getKaratsubaThreshold();
+        try {
+            PolynomialMultiplier.setKaratsubaThreshold(4);
+            assertArrayEquals(expected, first.multiplyBy(second).toCoefficientArray());
+            assertArrayEquals(expected, second.multiplyBy(first).toCoefficientArray());
+        } finally {
+            PolynomialMultiplier.setKaratsubaThreshold(threshold);
+        }
+    }
+
+
+    @Test
+    void fftMultiplyTest() {
+        double[] first = new double[3000];
+        double[] second = new double[2049];
+        for (int i = 0; i < first.length; i++)
+            first[i] = (i * 7919L) % 2001 - 1000;
+        for (int i = 0; i < second.length; i++)
+            second[i] = (i * 104729L) % 1999 - 999;
+
+        double[] expected = new double[first.length + second.length - 1];
+        PolynomialMultiplier.schoolbook(first, 0, first.length, second, 0, second.length, expected, 0);
+
+        assertArrayEquals(expected, FastFourierTransform.convolveExactly(first, second));
+        assertArrayEquals(expected, PolynomialMultiplier.multiply(first, second));
+
+        second[5] = 0.5; // not an integer, can't be rounded back
+        assertNull(FastFourierTransform.convolveExactly(first, second));
+    }
+
+
+    @Test
+    void longDivisionTest() {
+        Polynomial dividend = new Polynomial(new ArrayList<>(List.of(
+                new Term(1, 'x', 2), new Term(-1, 'x', 1))));
+        Polynomial divisor = new Polynomial(new ArrayList<>(List.of(
+                new Term(1, 'x', 1), new Term(1, 'x', 0))));
+
+        assertEquals("Result: x - 2\nRemainder: 2", dividend.divideBy(divisor).toString());
+        assertEquals("Result: 0\nRemainder: x + 1", divisor.divideBy(dividend).toString());
+    }
+
+
+    @Test
+    void highDegreeDivisionTest() {
+        // (x^5000 - 1) / (x - 1) = x^4999 + x^4998 + ... + 1, deep enough to overflow a recursive division
+        Polynomial dividend = new Polynomial(new ArrayList<>(List.of(
+                new Term(1, 'x', 5000), new Term(-1, 'x', 0))));
+        Polynomial divisor = new Polynomial(new ArrayList<>(List.of(
+                new Term(1, 'x', 1), new Term(-1, 'x', 0))));
+
+        PolynomialDivisionResult result = dividend.divideBy(divisor);
+
+        assertEquals(4999, result.getQuotient().getDegree());
+        assertEquals(5000, result.getQuotient().getTermCount());
+        assertTrue(result.getRemainder().isEmpty());
+    }
+
+
+    @Test
+    void sparseDivisionTest() {
+        // A buffer over every exponent of x^200000000 + 1 would take 1.6 GB, the terms alone are enough
+        Polynomial dividend = new Polynomial(new ArrayList<>(List.of(
+                new Term(1, 'x', 200_000_000), new Term(1, 'x', 0))));
+        Polynomial divisor = new Polynomial(new ArrayList<>(List.of(new Term(1, 'x', 1))));
+
+        assertEquals("Result: x^199999999\nRemainder: 1", dividend.divideBy(divisor).toString());
+
+        // Neither is the divisor laid out by exponent, Newton's iteration can't run on it
+        PolynomialReducer highDegree = new PolynomialReducer(dividend);
+        Polynomial multiple = new Polynomial(new ArrayList<>(List.of(
+                new Term(1, 'x', 400_000_000), new Term(1, 'x', 1))));
+        assertEquals("Result: x^200000000 - 1\nRemainder: x + 1", highDegree.divmod(multiple).toString());
+
+        // Both long divisions give the same quotient and remainder
+        ArrayList<Term> sparseTerms = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            sparseTerms.add(new Term((i * 7919L) % 13 - 6.5, 'x', i * 37 - 100));
+        Polynomial sparse = new Polynomial(sparseTerms);
+        PolynomialReducer reducer = new PolynomialReducer(new Polynomial(new ArrayList<>(List.of(
+                new Term(3, 'x', 5), new Term(-1, 'x', 2), new Term(0.5, 'x', -1)))));
+        assertEquals(reducer.longDivision(sparse, 'x'), reducer.sparseLongDivision(sparse, 'x'));
+    }
+
+
+    @Test
+    void newtonDivisionTest() {
+        // dividend = divisor * quotient + remainder, with a well-conditioned divisor
+        ArrayList<Term> divisorTerms = new ArrayList<>();
+        ArrayList<Term> quotientTerms = new ArrayList<>();
+        ArrayList<Term> remainderTerms = new ArrayList<>();
+        divisorTerms.add(new Term(1, 'x', 500));
+        for (int i = 0; i < 500; i++) {
+            divisorTerms.add(new Term(((i * 104729L) % 9 - 4) / 1024.0, 'x', i));
+            remainderTerms.add(new Term((i * 31L) % 11 - 5, 'x', i));
+        }
+        for (int i = 0; i <= 700; i++)
+            quotientTerms.add(new Term((i * 7919L) % 41 - 20, 'x', i));
+        Polynomial divisor = new Polynomial(divisorTerms);
+        Polynomial quotient = new Polynomial(quotientTerms);
+        Polynomial remainder = new Polynomial(remainderTerms);
+        Polynomial dividend = divisor.multiplyBy(quotient).addTo(remainder);
+
+        int threshold = PolynomialDivider.getNewtonThreshold();
+        try {
+            PolynomialDivider.setNewtonThreshold(100);
+            PolynomialDivisionResult result = dividend.divideBy(divisor);
+
+            assertArrayEquals(quotient.toCoefficientArray(), result.getQuotient().toCoefficientArray(), 1e-6);
+            assertArrayEquals(remainder.toCoefficientArray(), result.getRemainder().toCoefficientArray(), 1e-6);
+            assertTrue(result.getRemainder().getDegree() < divisor.getDegree());
+        } finally {
+            PolynomialDivider.setNewtonThreshold(threshold);
+        }
+    }
+
+
+    @Test
+    void unstableNewtonDivisionTest() {
+        // x^300 - 4x^299 + x^298 + ... + 1 has a root near 4, the inverse of its reversal blows up to NaN
+        ArrayList<Term> divisorTerms = new ArrayList<>();
+        ArrayList<Term> quotientTerms = new ArrayList<>();
+        divisorTerms.add(new Term(1, 'x', 300));
+        divisorTerms.add(new Term(-4, 'x', 299));
+        for (int i = 0; i < 299; i++)
+            divisorTerms.add(new Term(1, 'x', i));
+        for (int i = 0; i < 600; i++)
+            quotientTerms.add(new Term((i * 7919L) % 7 - 3, 'x', i));
+        Polynomial divisor = new Polynomial(divisorTerms);
+        Polynomial quotient = new Polynomial(quotientTerms);
+
+        // Newton's iteration fails the cross-check, long division gives the exact quotient
+        PolynomialDivisionResult result = divisor.multiplyBy(quotient).divideBy(divisor);
+        assertArrayEquals(quotient.toCoefficientArray(), result.getQuotient().toCoefficientArray());
+        assertTrue(result.getRemainder().isEmpty());
+    }
+
+
+    @Test
+    void reducerTest() {
+        ArrayList<Term> divisorTerms = new ArrayList<>();
+        divisorTerms.add(new Term(1, 'x', 300));
+        for (int i = 0; i < 300; i++)
+            divisorTerms.add(new Term((i * 13L) % 7 - 3, 'x', i));
+        Polynomial divisor = new Polynomial(divisorTerms);
+        PolynomialReducer reducer = new PolynomialReducer(divisor);
+
+        // Quotients of increasing length, so the cached inverse has to grow
+        List<Polynomial> dividends = new ArrayList<>();
+        for (int length = 1; length <= 900; length += 149) {
+            ArrayList<Term> terms = new ArrayList<>();
+            for (int i = 0; i < 300 + length; i++)
+                terms.add(new Term((i * 7919L + length) % 23 - 11, 'x', i));
+            dividends.add(new Polynomial(terms));
+        }
+
+        int threshold = PolynomialDivider.getNewtonThreshold();
+        try {
+            PolynomialDivider.setNewtonThreshold(100);
+            dividends.parallelStream().forEach(dividend -> {
+                PolynomialDivisionResult expected = dividend.divideBy(divisor);
+                PolynomialDivisionResult result = reducer.divmod(dividend);
+
+                assertArrayEquals(expected.getQuotient().toCoefficientArray(), result.getQuotient().toCoefficientArray());
+                assertArrayEquals(expected.getRemainder().toCoefficientArray(), result.getRemainder().toCoefficientArray());
+                assertArrayEquals(expected.getRemainder().toCoefficientArray(), reducer.reduce(dividend).toCoefficientArray());
+            });
+        } finally {
+            PolynomialDivider.setNewtonThreshold(threshold);
+        }
+
+        // A dividend of lower degree is its own remainder, and later changes to the divisor don't matter
+        Polynomial low = new Polynomial(new ArrayList<>(List.of(new Term(2, 'x', 2), new Term(1, 'x', 0))));
+        divisor.addTerm(5, 'x', 301);
+        assertSame(low, reducer.reduce(low));
+        assertEquals(300, reducer.getDivisor().getDegree());
+        assertThrows(IllegalArgumentException.class, () -> new PolynomialReducer(new Polynomial()));
+    }
+
+
+    @Test
+    void immutableTest() {
+        Polynomial polynomial = new Polynomial(terms);
+        ImmutablePolynomial immutable = ImmutablePolynomial.of(polynomial);
+        assertSame(immutable, ImmutablePolynomial.of(immutable));
+
+        // Later changes to the original don't reach the immutable copy
+        polynomial.addTerm(7, 'x', 2);
+        assertEquals("-5x^3 - 3x + 1", immutable.toString());
+        assertEquals(polynomial.getTerms().size() - 1, immutable.getTermCount());
+
+        List<Term> view = immutable.getTermView();
+        assertEquals(List.of(new Term(-5, 'x', 3), new Term(-3, 'x', 1), new Term(1, 'x', 0)), view);
+        assertSame(view, immutable.getTermView());
+        assertEquals(view, immutable.getTerms());
+        assertThrows(UnsupportedOperationException.class, () -> immutable.getTerms().getFirst().setCoefficient(2));
+        assertThrows(UnsupportedOperationException.class, () -> view.add(new Term(1, 'x', 4)));
+        assertThrows(UnsupportedOperationException.class, () -> view.getFirst().setCoefficient(2));
+        assertThrows(UnsupportedOperationException.class, () -> immutable.addTerm(1, 'x', 4));
+        assertThrows(UnsupportedOperationException.class, () -> immutable.setTerms(new ArrayList<>()));
+        assertThrows(UnsupportedOperationException.class, () -> immutable.setLiteralCoefficient('y'));
+
+        // The operations still give Polynomials that can be modified
+        Polynomial sum = immutable.addTo(immutable);
+        sum.addTerm(1, 'x', 4);
+        assertEquals("x^4 - 10x^3 - 6x + 2", sum.toString());
+        assertEquals(polynomial.evaluate(2) - 28, immutable.evaluate(2));
+
+        // The parse cache only hands out immutable Polynomials
+        assertInstanceOf(ImmutablePolynomial.class, new ParseCache(4).parse("x + 1"));
+    }
+
+
+    @Test
+    void equalsTest() {
+        Polynomial polynomial = new Polynomial(terms);
+        Polynomial parsed = PolynomialParser.parse("1 - 3x - 5x^3");
+        assertEquals(polynomial, parsed);
+        assertEquals(polynomial.hashCode(), parsed.hashCode());
+        assertEquals(parsed, ImmutablePolynomial.of(polynomial));
+        assertEquals(ImmutablePolynomial.of(polynomial), parsed);
+
+        // The same terms in either form
+        Polynomial sparse = PolynomialParser.parse("x^100 + x^2 + 1").decreaseBy(PolynomialParser.parse("x^100"));
+        Polynomial dense = PolynomialParser.parse("x^2 + 1");
+        assertEquals(dense, sparse);
+        assertEquals(dense.hashCode(), sparse.hashCode());
+
+        assertNotEquals(dense, PolynomialParser.parse("y^2 + 1"));
+        assertNotEquals(dense, PolynomialParser.parse("x^2 + 2"));
+        assertNotEquals(dense, PolynomialParser.parse("x^3 + 1"));
+        assertEquals(PolynomialParser.parse("5"), PolynomialParser.parse("x + 5").decreaseBy(PolynomialParser.parse("x")));
+        assertNotEquals(dense, "x^2 + 1");
+
+        // A division result only equals another
+        PolynomialDivisionResult division = parsed.divideBy(dense);
+        assertEquals(division, parsed.divideBy(dense));
+        assertNotEquals(division, new Polynomial());
+        assertNotEquals(new Polynomial(), division);
+
+        // Equal after a change, not before
+        dense.addTerm(1, 'x', 0);
+        assertNotEquals(sparse, dense);
+        assertEquals(PolynomialParser.parse("x^2 + 2"), dense);
+    }
+
+
+    @Test
+    void internTest() {
+        PolynomialInterner interner = new PolynomialInterner();
+        ImmutablePolynomial first = interner.intern(PolynomialParser.parse("x^2 + 2x + 1"));
+        assertSame(first, interner.intern(PolynomialParser.parse("1 + 2x + x^2")));
+        assertSame(first, interner.intern(first));
+        assertNotSame(first, interner.intern(PolynomialParser.parse("x^2 + 2x + 2")));
+        assertEquals(2, interner.size());
+        assertEquals(2, interner.getHitCount());
+
+        interner.clear();
+        assertEquals(0, interner.size());
+        assertNotSame(first, interner.intern(PolynomialParser.parse("x^2 + 2x + 1")));
+    }
+
+
+    @Test
+    void pointFileEvaluateTest() throws IOException {
+        Polynomial polynomial = new Polynomial(new ArrayList<>(List.of(
+                new Term(2, 'x', 5), new Term(-3, 'x', 2), new Term(0.5, 'x', 0))));
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = (i - 5000) / 997.0;
+
+        Path input = Files.createTempFile("points", ".bin");
+        Path output = Files.createTempFile("results", ".bin");
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asDoubleBuffer().put(values);
+            Files.write(input, buffer.array());
+
+            try (PointFileEvaluator evaluator = new PointFileEvaluator(4, null, 1500)) { // several windows
+                assertEquals(values.length, evaluator.evaluate(polynomial, input, output));
+            }
+
+            double[] results = new double[values.length];
+            ByteBuffer.wrap(Files.readAllBytes(output)).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(results);
+            double[] expected = new double[values.length];
+            polynomial.evaluate(values, expected);
+            assertArrayEquals(expected, results);
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+}